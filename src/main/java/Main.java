@@ -1,6 +1,8 @@
 import java.io.IOException;
 
 import eunai.EunAi;
+import eunai.Storage;
+import eunai.TaskListMode;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -12,7 +14,13 @@ import javafx.stage.Stage;
  */
 public class Main extends Application {
 
-    private EunAi eunAI = new EunAi("data/eunai.txt");
+    // Run with -Deunai.lazy=true to parse tasks on first use, for very large task files,
+    // with -Deunai.columnar=true to keep tasks in compact columns instead of one object each,
+    // and with -Deunai.backend=kv to keep tasks in the embedded key-value store
+    private EunAi eunAI = new EunAi(
+            Storage.withBackend("data/eunai.txt", System.getProperty("eunai.backend", "journal")),
+            Boolean.getBoolean("eunai.lazy") ? TaskListMode.LAZY
+                    : Boolean.getBoolean("eunai.columnar") ? TaskListMode.COLUMNAR : TaskListMode.EAGER);
 
     @Override
     public void start(Stage stage) {
@@ -24,6 +32,7 @@ public class Main extends Application {
             stage.setMinHeight(220);
             stage.setMinWidth(417);
             fxmlLoader.<MainWindow>getController().setEunAI(eunAI);
+            stage.setOnCloseRequest(event -> eunAI.shutdown());
             stage.show();
         } catch (IOException e) {
             e.printStackTrace();
@@ -1,7 +1,17 @@
 package eunai;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 import eunai.command.Command;
 import eunai.command.CommandParser;
+import eunai.storage.ArchivePolicy;
+import eunai.storage.LazyTaskList;
+import eunai.task.ColumnarTaskList;
+import eunai.task.Task;
 import eunai.ui.Ui;
 
 /**
@@ -21,10 +31,79 @@ public class EunAi {
      * @param filePath The file path where tasks are stored and loaded from.
      */
     public EunAi(String filePath) {
-        assert filePath != null && !filePath.isEmpty() : "filePath should not be null or empty";
+        this(filePath, TaskListMode.EAGER);
+    }
+
+    /**
+     * Constructs an instance of the EunAi chatbot that holds its tasks in memory in the given way.
+     * Lazy loading only parses the tasks that are actually used, which makes startup much faster
+     * for very large task files, while the columnar mode keeps every task in far less memory.
+     *
+     * @param filePath The file path where tasks are stored and loaded from.
+     * @param mode How the tasks are held in memory.
+     */
+    public EunAi(String filePath, TaskListMode mode) {
+        this(new Storage(checkFilePath(filePath)), mode);
+    }
+
+    /**
+     * Constructs an instance of the EunAi chatbot that keeps its tasks in the given storage.
+     *
+     * @param storage The storage where tasks are saved and loaded from.
+     * @param mode How the tasks are held in memory.
+     */
+    public EunAi(Storage storage, TaskListMode mode) {
+        assert storage != null : "storage should not be null";
         ui = new Ui();
-        storage = new Storage(filePath);
-        taskList = new TaskList(storage.loadSavedTasks());
+        this.storage = storage;
+        taskList = new TaskList(loadTasks(storage, mode));
+        taskList.addListener(storage);
+        archiveIfMostlyDone(ArchivePolicy.DEFAULT);
+        if (mode == TaskListMode.EAGER) {
+            // Old versions hold every task as an object, which the other modes exist to avoid
+            taskList.enableHistory();
+        }
+    }
+
+    private static List<Task> loadTasks(Storage storage, TaskListMode mode) {
+        switch (mode) {
+        case LAZY:
+            return storage.loadSavedTasksLazily(LazyTaskList.DEFAULT_CACHE_SIZE);
+        case COLUMNAR:
+            // Loading lazily parses one task at a time, so the tasks never all exist as objects at once
+            List<Task> savedTasks = storage.loadSavedTasksLazily(LazyTaskList.DEFAULT_CACHE_SIZE);
+            ColumnarTaskList columns = new ColumnarTaskList(savedTasks);
+            if (savedTasks instanceof LazyTaskList) {
+                // Every task has been copied, so the snapshot no longer needs to stay mapped
+                ((LazyTaskList) savedTasks).close();
+            }
+            return columns;
+        default:
+            return storage.loadSavedTasks();
+        }
+    }
+
+    private static String checkFilePath(String filePath) {
+        assert filePath != null && !filePath.isEmpty() : "filePath should not be null or empty";
+        return filePath;
+    }
+
+    /**
+     * Moves completed tasks to the archive if the policy says there are enough of them.
+     * This only happens at startup, so task numbers never shift in the middle of a session.
+     * Counting the completed tasks does not parse a lazily loaded list.
+     */
+    private void archiveIfMostlyDone(ArchivePolicy policy) {
+        int doneCount = taskList.getDoneIndices().length;
+        if (!policy.shouldArchive(doneCount, taskList.getSize())) {
+            return;
+        }
+        try {
+            storage.archiveDoneTasks(taskList);
+            storage.commit();
+        } catch (IOException e) {
+            System.out.println("Error archiving completed tasks. They are kept in the list.");
+        }
     }
 
     /**
@@ -43,16 +122,38 @@ public class EunAi {
         }
     }
 
+    private void streamList(String input, Writer out) {
+        try {
+            Command.streamList(input, taskList, out);
+        } catch (IOException e) {
+            System.out.println("Oopsies! Something went wrong: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes every change made so far to disk and stops background saving.
+     * Used when the application is closed without the exit command.
+     */
+    public void shutdown() {
+        storage.close();
+    }
+
     /**
      * Starts the chatbot in command-line interface (CLI) mode.
      * Continuously reads and processes user input until the exit command is issued.
      */
     public void run() {
         ui.showWelcomeMessage();
+        Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
 
         while (true) {
             String input = ui.readCommand();
-            System.out.println(processUserInput(input));
+            if (CommandParser.parseCommand(input) == CommandParser.Command.LIST) {
+                // Written as it is formatted, so even a huge list starts showing at once
+                streamList(input, out);
+            } else {
+                System.out.println(processUserInput(input));
+            }
 
             if (CommandParser.parseCommand(input) == CommandParser.Command.BYE) {
                 break;
@@ -0,0 +1,270 @@
+package eunai;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import eunai.query.Query;
+import eunai.task.Task;
+import eunai.task.TaskType;
+
+/**
+ * Represents a task list that can be shared between threads, such as a GUI, a command-line loop
+ * and background savers.
+ * <p>
+ * Changes take a {@link StampedLock} exclusively. Reads take the read lock, so they run in parallel with
+ * each other and only wait for changes. Reading a task or rendering the list walks several structures that
+ * a change rebuilds, so none of them is read without the lock. Only {@link #getSize()}, which reads a single
+ * number, is an optimistic read that is repeated under the read lock if a change happened meanwhile. Every
+ * index is built up front, so searching never changes the list.
+ * </p>
+ * <p>
+ * The list the tasks are stored in must be safe to read from several threads at once, as an
+ * {@code ArrayList} or a {@link eunai.task.ColumnarTaskList} is. A lazily loaded list is not, since it
+ * reorders its cache on every read.
+ * </p>
+ * <p>
+ * {@link EunAi} runs every command on the GUI thread and uses a plain {@link TaskList}; this class is for
+ * programs that share one list between threads.
+ * </p>
+ */
+public class ConcurrentTaskList extends TaskList {
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Constructs an empty {@code ConcurrentTaskList}.
+     */
+    public ConcurrentTaskList() {
+        this(new ArrayList<>());
+    }
+
+    /**
+     * Constructs a {@code ConcurrentTaskList} initialized with a given list of stored tasks.
+     *
+     * @param storedTasks The list of tasks to initialize the task list with.
+     */
+    public ConcurrentTaskList(List<Task> storedTasks) {
+        super(storedTasks);
+        buildIndexes();
+    }
+
+    @Override
+    public void addListener(TaskListListener listener) {
+        write(() -> super.addListener(listener));
+    }
+
+    @Override
+    public void addTask(Task task) {
+        write(() -> super.addTask(task));
+    }
+
+    @Override
+    public void deleteTask(int index) {
+        write(() -> super.deleteTask(index));
+    }
+
+    @Override
+    public List<Task> deleteTasks(int[] indices) {
+        return write(() -> super.deleteTasks(indices));
+    }
+
+    @Override
+    public List<Task> deleteDueBefore(LocalDateTime dateTime) {
+        return write(() -> super.deleteDueBefore(dateTime));
+    }
+
+    @Override
+    public void markTask(int index) {
+        write(() -> super.markTask(index));
+    }
+
+    @Override
+    public void unmarkTask(int index) {
+        write(() -> super.unmarkTask(index));
+    }
+
+    @Override
+    public void enableHistory() {
+        write(super::enableHistory);
+    }
+
+    @Override
+    public void commitVersion() {
+        write(super::commitVersion);
+    }
+
+    /**
+     * Rebuilds the indexes straight after undoing, so that searches still never change the list.
+     */
+    @Override
+    public boolean undo() {
+        return write(() -> {
+            boolean isUndone = super.undo();
+            buildIndexes();
+            return isUndone;
+        });
+    }
+
+    @Override
+    public boolean redo() {
+        return write(() -> {
+            boolean isRedone = super.redo();
+            buildIndexes();
+            return isRedone;
+        });
+    }
+
+    @Override
+    public void clearHistory() {
+        write(super::clearHistory);
+    }
+
+    @Override
+    public List<Task> snapshot() {
+        return read(super::snapshot);
+    }
+
+    @Override
+    public Task getTask(int index) {
+        return read(() -> super.getTask(index));
+    }
+
+    /**
+     * Reads the size without locking, and reads it again under the read lock if the list changed meanwhile.
+     */
+    @Override
+    public int getSize() {
+        long stamp = lock.tryOptimisticRead();
+        int size = super.getSize();
+        return lock.validate(stamp) ? size : read(super::getSize);
+    }
+
+    @Override
+    public Task getLastTask() {
+        return read(super::getLastTask);
+    }
+
+    @Override
+    public String getListString() {
+        return read(() -> super.getListString());
+    }
+
+    @Override
+    public String getListString(int from, int to) {
+        return read(() -> super.getListString(from, to));
+    }
+
+    /**
+     * Returns a copy of the tasks, taken at one point in time, since a live view could change between
+     * two reads.
+     */
+    @Override
+    public List<Task> getAllTasks() {
+        return read(() -> new ArrayList<>(super.getAllTasks()));
+    }
+
+    /**
+     * Holds the read lock while writing, since the output cannot be taken back if a change happens.
+     */
+    @Override
+    public void writeList(Writer out, int from, int to) throws IOException {
+        long stamp = lock.readLock();
+        try {
+            super.writeList(out, from, to);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String getSortedListString(SortOrder order, int limit) {
+        return read(() -> super.getSortedListString(order, limit));
+    }
+
+    @Override
+    public TaskList findTask(String keyword) {
+        return read(() -> super.findTask(keyword));
+    }
+
+    @Override
+    public TaskList findByQuery(Query query) {
+        return read(() -> super.findByQuery(query));
+    }
+
+    @Override
+    public TaskList findMatching(Pattern pattern) {
+        return read(() -> super.findMatching(pattern));
+    }
+
+    @Override
+    public TaskList filter(Predicate<Task> condition) {
+        return read(() -> super.filter(condition));
+    }
+
+    @Override
+    public TaskList findFuzzy(String term, int maxDistance) {
+        return read(() -> super.findFuzzy(term, maxDistance));
+    }
+
+    @Override
+    public TaskList filterByType(TaskType type) {
+        return read(() -> super.filterByType(type));
+    }
+
+    @Override
+    public int[] getDoneIndices() {
+        return read(super::getDoneIndices);
+    }
+
+    @Override
+    public TaskList findDueBefore(LocalDateTime dateTime) {
+        return read(() -> super.findDueBefore(dateTime));
+    }
+
+    @Override
+    public TaskList findDueOn(LocalDate date) {
+        return read(() -> super.findDueOn(date));
+    }
+
+    @Override
+    public TaskList findOverlappingEvents(LocalDateTime start, LocalDateTime end) {
+        return read(() -> super.findOverlappingEvents(start, end));
+    }
+
+    @Override
+    public List<Task[]> findConflicts() {
+        return read(super::findConflicts);
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T write(Supplier<T> writer) {
+        long stamp = lock.writeLock();
+        try {
+            return writer.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void write(Runnable writer) {
+        write(() -> {
+            writer.run();
+            return null;
+        });
+    }
+}
@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Represents a utility class used for parsing and formatting date strings.
@@ -12,6 +13,11 @@ import java.util.List;
  */
 public class DateParser {
 
+    // Month names and am/pm are read and written the same way whatever the machine's default locale is
+    private static final Locale LOCALE = Locale.forLanguageTag("en-SG");
+    private static final DateTimeFormatter DISPLAY_FORMATTER =
+            DateTimeFormatter.ofPattern("MMM d, yyyy hh:mm a", LOCALE);
+
     private static final List<String> DATE_FORMATS = List.of(
             "yyyy-MM-dd HH:mm",
             "yyyy-MM-dd", // 2019-12-02
@@ -26,14 +32,20 @@ public class DateParser {
             "dd/MM/yyyy" // 02/12/2019
     );
 
+    // Building a formatter parses its pattern, so each one is only built once
+    private static final List<DateTimeFormatter> DATE_FORMATTERS = DATE_FORMATS.stream()
+            .map(format -> DateTimeFormatter.ofPattern(format, LOCALE))
+            .toList();
+
     /**
      * Parses a date string into a LocalDateTime object.
      * @param dateInput The date string to be parsed.
      * @return The parsed date and time as a LocalDateTime object.
      */
     public static LocalDateTime parseDate(String dateInput) {
-        for (String format : DATE_FORMATS) {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
+        for (int i = 0; i < DATE_FORMATS.size(); i++) {
+            String format = DATE_FORMATS.get(i);
+            DateTimeFormatter formatter = DATE_FORMATTERS.get(i);
             try {
                 if (format.contains("HHmm") || format.contains("HH:mm")) {
                     return LocalDateTime.parse(dateInput, formatter);
@@ -58,8 +70,7 @@ public class DateParser {
         if (dateTime == null) {
             throw new IllegalArgumentException("Cannot format null date.");
         }
-        DateTimeFormatter displayFormatter = DateTimeFormatter.ofPattern("MMM d, yyyy hh:mm a");
-        return dateTime.format(displayFormatter);
+        return dateTime.format(DISPLAY_FORMATTER);
     }
 
 }
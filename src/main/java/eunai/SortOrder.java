@@ -0,0 +1,14 @@
+package eunai;
+
+/**
+ * Represents the orders a task list can be listed in.
+ * Tasks that are equal in the order stay in list order.
+ */
+public enum SortOrder {
+    /** By when the tasks are due, earliest first, with to-dos, which have no date, last. */
+    DATE,
+    /** Tasks not done yet first, then those that are done. */
+    STATUS,
+    /** To-dos first, then deadlines, then events. */
+    TYPE
+}
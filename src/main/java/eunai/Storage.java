@@ -1,42 +1,91 @@
 package eunai;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-
-import eunai.task.Deadline;
-import eunai.task.Event;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import eunai.storage.AutosavePolicy;
+import eunai.storage.ColdArchive;
+import eunai.storage.JournalBackend;
+import eunai.storage.KeyValueBackend;
+import eunai.storage.StorageBackend;
 import eunai.task.Task;
-import eunai.task.ToDo;
 
 /**
  * Represents the storage component responsible for reading from and writing tasks to a file.
+ * <p>
+ * How the tasks are kept on disk is up to a {@link StorageBackend}, which is told about every change
+ * to the list as it happens. By default this is a {@link JournalBackend}, which keeps a snapshot of the
+ * list plus a journal of the changes made after it; a {@link KeyValueBackend} keeps one entry per task
+ * in an embedded key-value store instead.
+ * </p>
+ * <p>
+ * Completed tasks can be moved out of the list into a compressed {@link ColdArchive}
+ * ({@code <data file>.archive}), where they are kept out of the way but can still be searched.
+ * </p>
  */
-public class Storage {
-    private String filePath;
+public class Storage implements TaskListListener {
+    private final StorageBackend backend;
+    private final ColdArchive archive;
+    private volatile boolean isSaveFailing;
 
     /**
      * Constructs a {@code Storage} object with the specified file path.
      * @param filePath The path of the file to save/load task data.
      */
     public Storage(String filePath) {
-        this.filePath = filePath;
+        this(filePath, AutosavePolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs a {@code Storage} object with the specified file path and autosave policy.
+     * @param filePath The path of the file to save/load task data.
+     * @param autosavePolicy When changes are written to disk without an explicit save.
+     */
+    public Storage(String filePath, AutosavePolicy autosavePolicy) {
+        this(filePath, new JournalBackend(Path.of(filePath), autosavePolicy));
+    }
+
+    /**
+     * Constructs a {@code Storage} object that keeps tasks in the given backend.
+     * @param filePath The path of the data file, next to which the archive is kept.
+     * @param backend Where the task list is kept.
+     */
+    public Storage(String filePath, StorageBackend backend) {
+        this.backend = backend;
+        this.archive = new ColdArchive(Path.of(filePath + ".archive"));
+    }
+
+    /**
+     * Constructs a {@code Storage} object using the backend with the given name:
+     * {@code journal} (the default) or {@code kv}, which keeps its store in {@code <filePath>.kv}.
+     * @param filePath The path of the file to save/load task data.
+     * @param backendName The name of the backend.
+     * @return The {@code Storage} object.
+     * @throws IllegalArgumentException If the name is not a known backend.
+     */
+    public static Storage withBackend(String filePath, String backendName) {
+        switch (backendName.toLowerCase()) {
+        case "journal":
+            return new Storage(filePath);
+        case "kv":
+            return new Storage(filePath, new KeyValueBackend(Path.of(filePath + ".kv")));
+        default:
+            throw new IllegalArgumentException("Unknown storage backend: " + backendName);
+        }
     }
 
     /**
-     * Saves the given list of tasks to the file specified by {@code filePath}.
+     * Saves the given list of tasks as the complete contents of storage, replacing everything saved
+     * before, and waits until it is on disk.
      * @param taskList The list of tasks to save.
      * @return true if saving was successful; false otherwise.
      */
-    public boolean saveTasks(ArrayList<Task> taskList) {
-        File file = new File(filePath);
-        file.getParentFile().mkdirs();
-
-        try (FileWriter writer = new FileWriter(file)) {
-            writeTasksToFile(writer, taskList);
+    public boolean saveTasks(List<Task> taskList) {
+        try {
+            backend.saveAll(taskList);
             return true;
         } catch (IOException e) {
             System.out.println("Error saving tasks. Your changes might not be saved.");
@@ -45,116 +94,122 @@ public class Storage {
     }
 
     /**
-     * Writes all tasks in {@code taskList} to the given {@code FileWriter}.
+     * Marks the end of a command, so that its changes are saved together in the background
+     * according to the autosave policy. Returns immediately.
+     * @return A future completed with whether the changes are safely on disk.
      */
-    private void writeTasksToFile(FileWriter writer, ArrayList<Task> taskList) throws IOException {
-        for (Task task : taskList) {
-            writer.write(task.toFileFormat() + System.lineSeparator());
-        }
+    public CompletableFuture<Boolean> commit() {
+        return trackFailures(backend.commit());
     }
 
     /**
-     * Loads previously saved tasks from the file specified by {@code filePath}.
-     * If the file does not exist, returns an empty task list.
-     * @return An {@code ArrayList} of tasks loaded from the file.
+     * Writes every change made so far in the background as soon as possible.
+     * This is cheap compared to {@link #saveTasks(List)} as only the changes are written.
+     * @return A future completed with whether the changes are safely on disk.
      */
-    public ArrayList<Task> loadSavedTasks() {
-        ArrayList<Task> prevTaskList = new ArrayList<>();
-        File savedFile = new File(filePath);
-
-        if (!savedFile.exists()) {
-            System.out.println("You have not saved any information previously. Starting a new list...");
-            return prevTaskList;
-        }
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(savedFile))) {
-            readTasksFromFile(reader, prevTaskList);
-        } catch (IOException e) {
-            System.out.println("Error loading tasks. Starting a new list...");
-        }
-        return prevTaskList;
+    public CompletableFuture<Boolean> flush() {
+        return trackFailures(backend.flush());
     }
 
     /**
-     * Reads tasks line by line from the given {@code BufferedReader} and adds valid tasks to {@code taskList}.
+     * Writes every change made so far, waits for the write to finish and stops the writer thread.
+     * @return true if the changes are safely on disk; false otherwise.
      */
-    private void readTasksFromFile(BufferedReader reader, ArrayList<Task> taskList) throws IOException {
-        String currLine;
-        while ((currLine = reader.readLine()) != null) {
-            Task task = parseTask(currLine);
-            if (task != null) {
-                taskList.add(task);
-            }
-        }
+    public boolean close() {
+        return trackFailures(backend.close()).join();
     }
 
     /**
-     * Parses a single line from the file into a {@code Task} object.
-     * @param line The line from the file.
-     * @return The corresponding {@code Task} object, or null if invalid format.
+     * Moves every completed task out of the list and into the archive.
+     * The tasks are on disk in the archive before they are removed from the list, so a crash in between
+     * can at worst leave a task in both places, but never lose it.
+     * @param tasks The list to remove completed tasks from.
+     * @return The archived tasks, in list order.
      */
-    private Task parseTask(String line) {
-        String[] splitParts = splitTaskLine(line);
-        if (splitParts == null) {
-            return null;
+    public List<Task> archiveDoneTasks(TaskList tasks) throws IOException {
+        int[] doneIndices = tasks.getDoneIndices();
+        List<Task> doneTasks = new ArrayList<>(doneIndices.length);
+        for (int index : doneIndices) {
+            doneTasks.add(tasks.getTask(index));
         }
-        return createTaskFromParts(splitParts, line);
+        archive.append(doneTasks);
+        tasks.deleteTasks(doneIndices);
+        return doneTasks;
     }
 
     /**
-     * Splits the line into an array of parts and checks basic validity.
+     * Returns the archived tasks whose description contains the keyword, ignoring case.
+     * @param keyword The keyword to search for.
+     * @return The matching archived tasks, oldest first.
      */
-    private String[] splitTaskLine(String line) {
-        String[] splitParts = line.split(" \\| ");
-        if (splitParts.length < 3) {
-            System.out.println("Skipping invalid task format: " + line);
-            return null;
-        }
-        return splitParts;
+    public List<Task> searchArchive(String keyword) throws IOException {
+        String lowerKeyword = keyword.toLowerCase();
+        return archive.search(task -> task.getDescription().toLowerCase().contains(lowerKeyword));
     }
 
     /**
-     * Creates a {@code Task} from the parts array based on task type.
+     * Returns whether the most recent background save failed.
      */
-    private Task createTaskFromParts(String[] splitParts, String originalLine) {
-        String taskType = splitParts[0];
-        boolean taskIsDone = splitParts[1].equals("1");
-        String taskDescription = splitParts[2];
+    public boolean isSaveFailing() {
+        return isSaveFailing;
+    }
 
-        try {
-            switch (taskType) {
-            case "T":
-                return new ToDo(taskDescription, taskIsDone);
-            case "D":
-                return createDeadline(splitParts, taskDescription, taskIsDone);
-            case "E":
-                return createEvent(splitParts, taskDescription, taskIsDone);
-            default:
-                throw new IllegalArgumentException();
-            }
-        } catch (IllegalArgumentException e) {
-            System.out.println("Error parsing task: " + originalLine);
-            return null;
-        }
+    private CompletableFuture<Boolean> trackFailures(CompletableFuture<Boolean> saved) {
+        return saved.thenApply(isSaved -> {
+            isSaveFailing = !isSaved;
+            return isSaved;
+        });
     }
 
     /**
-     * Creates a {@code Deadline} from the split parts array.
+     * Loads previously saved tasks, finishing any save that was interrupted by a crash first.
+     * If nothing was saved before, returns an empty task list.
+     * @return An {@code ArrayList} of tasks loaded from storage.
      */
-    private Deadline createDeadline(String[] splitParts, String description, boolean isDone) {
-        if (splitParts.length < 4) {
-            throw new IllegalArgumentException();
-        }
-        return new Deadline(description, isDone, splitParts[3]);
+    public ArrayList<Task> loadSavedTasks() {
+        return backend.loadAll();
     }
 
     /**
-     * Creates an {@code Event} from the split parts array.
+     * Loads previously saved tasks like {@link #loadSavedTasks()}, but only parses a task when it is
+     * first used, if the backend supports it.
+     * @param cacheSize The number of parsed tasks to keep in memory, besides tasks that were changed.
+     * @return A list of the saved tasks.
      */
-    private Event createEvent(String[] splitParts, String description, boolean isDone) {
-        if (splitParts.length < 5) {
-            throw new IllegalArgumentException();
+    public List<Task> loadSavedTasksLazily(int cacheSize) {
+        return backend.loadAllLazily(cacheSize);
+    }
+
+    @Override
+    public void taskAdded(int index, Task task) {
+        backend.upsert(index, task);
+    }
+
+    @Override
+    public void taskRemoved(int index, Task task) {
+        backend.delete(index);
+    }
+
+    @Override
+    public void taskInserted(int index, Task task) {
+        backend.insert(index, task);
+    }
+
+    @Override
+    public void taskUpdated(int index, Task task) {
+        backend.updateStatus(index, task);
+    }
+
+    /**
+     * Saves the new contents as a whole, which is simpler than working out what changed.
+     * The backend writes them along with the other changes of the command.
+     */
+    @Override
+    public void tasksReplaced(List<Task> tasks) {
+        try {
+            backend.replaceAll(tasks);
+        } catch (IOException e) {
+            System.out.println("Error saving tasks. Your changes might not be saved.");
         }
-        return new Event(description, isDone, splitParts[3], splitParts[4]);
     }
 }
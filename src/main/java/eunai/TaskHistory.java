@@ -0,0 +1,165 @@
+package eunai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import eunai.index.PersistentList;
+import eunai.task.Task;
+
+/**
+ * Represents the versions of a task list that undo and redo move between.
+ * <p>
+ * Every version is a {@link PersistentList}, and each change to the task list is applied to the current
+ * version in O(log n) time, sharing everything it does not change with the version before. Keeping
+ * every version therefore costs only the nodes the changes copied, so there is no limit on how far back
+ * undo can go.
+ * </p>
+ * <p>
+ * Each step also remembers the changes that made it, so that undo and redo can apply just those changes
+ * to the task list, in time proportional to their number instead of to the size of the list.
+ * </p>
+ */
+class TaskHistory {
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    private PersistentList<Task> current;
+    // The version at the end of the last command
+    private PersistentList<Task> committed;
+    // The changes made by the current command so far
+    private List<Change> changes = new ArrayList<>();
+
+    TaskHistory(List<Task> tasks) {
+        this.current = PersistentList.of(tasks);
+        this.committed = current;
+    }
+
+    void add(Task task) {
+        changes.add(new Change(Change.Kind.ADDED, current.size(), task, null));
+        current = current.add(task);
+    }
+
+    void set(int index, Task previous, Task task) {
+        changes.add(new Change(Change.Kind.SET, index, task, previous));
+        current = current.set(index, task);
+    }
+
+    /**
+     * Records the removal of a task.
+     *
+     * @param slot The slot the task was stored in, which it can be put back into while that slot is empty.
+     * @param slotGeneration How many times the slots had been moved together when the task was removed.
+     */
+    void remove(int index, Task task, int slot, int slotGeneration) {
+        Change change = new Change(Change.Kind.REMOVED, index, task, null);
+        change.slot = slot;
+        change.slotGeneration = slotGeneration;
+        changes.add(change);
+        current = current.remove(index);
+    }
+
+    PersistentList<Task> getCurrent() {
+        return current;
+    }
+
+    /**
+     * Ends the current command, making its changes one step that can be undone.
+     * Does nothing if the command did not change anything.
+     */
+    void commit() {
+        if (current == committed) {
+            return;
+        }
+        undoSteps.push(new Step(committed, current, changes));
+        redoSteps.clear();
+        committed = current;
+        changes = new ArrayList<>();
+    }
+
+    /**
+     * Steps back to the version before the last command.
+     *
+     * @return The step to undo, or null if there is nothing to undo.
+     */
+    Step undo() {
+        commit();
+        if (undoSteps.isEmpty()) {
+            return null;
+        }
+        Step step = undoSteps.pop();
+        redoSteps.push(step);
+        moveTo(step.before);
+        return step;
+    }
+
+    /**
+     * Steps forward to the version the last undo went back from.
+     *
+     * @return The step to redo, or null if there is nothing to redo.
+     */
+    Step redo() {
+        commit();
+        if (redoSteps.isEmpty()) {
+            return null;
+        }
+        Step step = redoSteps.pop();
+        undoSteps.push(step);
+        moveTo(step.after);
+        return step;
+    }
+
+    /**
+     * Forgets every earlier and later version, keeping only the current one.
+     */
+    void clear() {
+        commit();
+        undoSteps.clear();
+        redoSteps.clear();
+    }
+
+    private void moveTo(PersistentList<Task> version) {
+        committed = version;
+        current = version;
+    }
+
+    /**
+     * Represents the changes made by one command, and the versions of the list before and after them.
+     */
+    static class Step {
+        final PersistentList<Task> before;
+        final PersistentList<Task> after;
+        final List<Change> changes;
+
+        Step(PersistentList<Task> before, PersistentList<Task> after, List<Change> changes) {
+            this.before = before;
+            this.after = after;
+            this.changes = changes;
+        }
+    }
+
+    /**
+     * Represents a single change to the list: a task added at the end, removed, or swapped for a copy
+     * with another status.
+     */
+    static class Change {
+        enum Kind { ADDED, REMOVED, SET }
+
+        final Kind kind;
+        final int index;
+        // The task added, removed, or set
+        final Task task;
+        // The task that was set over; null unless the kind is SET
+        final Task previous;
+        // Where a removed task was stored; updated whenever redo removes it again
+        int slot;
+        int slotGeneration;
+
+        Change(Kind kind, int index, Task task, Task previous) {
+            this.kind = kind;
+            this.index = index;
+            this.task = task;
+            this.previous = previous;
+        }
+    }
+}
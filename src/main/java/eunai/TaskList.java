@@ -1,22 +1,78 @@
 package eunai;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
+import eunai.index.DateIndex;
+import eunai.index.IntList;
+import eunai.index.IntervalTree;
+import eunai.index.PersistentList;
+import eunai.index.PositionIndex;
+import eunai.index.TokenIndex;
+import eunai.index.TrigramIndex;
+import eunai.query.Clause;
+import eunai.query.Query;
+import eunai.task.BulkRemovable;
+import eunai.task.ColumnarTaskList;
+import eunai.task.Deadline;
+import eunai.task.Event;
+import eunai.task.StatusReadable;
 import eunai.task.Task;
+import eunai.task.TaskType;
 
 /**
  * Represents a list of tasks.
  * Provides methods to add, delete, search, and modify tasks in the list.
  */
 public class TaskList {
-    private ArrayList<Task> taskList;
+    // Deleting only empties a slot, and the empty slots are dropped once they outnumber the tasks
+    private static final int MIN_SLOTS_TO_COMPACT = 64;
+    private static final int LIST_CHUNK_SIZE = 256;
+    // A query scans the whole list rather than read more candidates than this fraction of it
+    private static final int MAX_CANDIDATE_FRACTION = 8;
+    private static final TaskScanner SCANNER = new TaskScanner(ForkJoinPool.commonPool());
+
+    // Deleted tasks stay in their slots until the next compaction; positions maps indices to live slots
+    private final List<Task> slots;
+    private final PositionIndex positions;
+    private final List<Task> tasksView = new TasksView();
+    private final List<TaskListListener> listeners = new ArrayList<>();
+    // The sequence number of the task in each slot; assigned in ascending order, so this stays sorted
+    private final IntList seqs = new IntList();
+    private int nextSeq;
+    // Each built on the first search that needs it, then kept up to date
+    private TrigramIndex trigramIndex;
+    private TokenIndex tokenIndex;
+    private EnumMap<TaskType, BitSet> typePartitions;
+    // The tasks not done yet, then the tasks that are done
+    private BitSet[] statusPartitions;
+    private DateIndex dateIndex;
+    private IntervalTree eventTree;
+    // Every version of the list that undo and redo can return to; null unless history is kept
+    private TaskHistory history;
+    // Counts the times the slots were moved together, after which removed tasks can no longer be put back
+    private int slotGeneration;
 
     /**
      * Constructs an empty {@code TaskList}.
      * This is typically used when starting a new task list.
      */
     public TaskList() {
-        this.taskList = new ArrayList<>();
+        this(new ArrayList<>());
     }
 
     /**
@@ -24,8 +80,21 @@ public class TaskList {
      *
      * @param storedTasks The list of tasks to initialize the task list with.
      */
-    public TaskList(ArrayList<Task> storedTasks) {
-        this.taskList = storedTasks;
+    public TaskList(List<Task> storedTasks) {
+        this.slots = storedTasks;
+        this.positions = new PositionIndex(storedTasks.size());
+        for (int i = 0; i < storedTasks.size(); i++) {
+            seqs.add(nextSeq++);
+        }
+    }
+
+    /**
+     * Registers a listener to be notified of every subsequent change to this list.
+     *
+     * @param listener The listener to notify.
+     */
+    public void addListener(TaskListListener listener) {
+        this.listeners.add(listener);
     }
 
     /**
@@ -34,16 +103,327 @@ public class TaskList {
      * @param task The task to be added.
      */
     public void addTask(Task task) {
-        this.taskList.add(task);
+        if (history != null) {
+            history.add(task);
+        }
+        appendTask(task);
+    }
+
+    private void appendTask(Task task) {
+        this.slots.add(task);
+        positions.append();
+        int seq = nextSeq++;
+        seqs.add(seq);
+        indexTask(seq, task);
+        for (TaskListListener listener : listeners) {
+            listener.taskAdded(positions.size() - 1, task);
+        }
     }
 
     /**
      * Deletes the task at the specified index from the task list.
+     * Takes O(log n) time, apart from an occasional compaction that is paid for by the deletions before it,
+     * and, once a text search has built the text indexes, removing the task from the posting list of each
+     * of its words and trigrams, which takes time in proportion to the length of those lists.
      *
      * @param index The index of the task to be deleted.
      */
     public void deleteTask(int index) {
-        this.taskList.remove(index);
+        int slot = positions.slotOf(index);
+        if (history != null) {
+            history.remove(index, slots.get(slot), slot, slotGeneration);
+        }
+        removeSlot(index, slot);
+        compactIfSparse();
+    }
+
+    /**
+     * Empties the slot of the task at {@code index}, leaving it to be dropped by a later compaction.
+     */
+    private void removeSlot(int index, int slot) {
+        Task removed = slots.get(slot);
+        positions.remove(slot);
+        unindexTask(seqs.get(slot), removed);
+        for (TaskListListener listener : listeners) {
+            listener.taskRemoved(index, removed);
+        }
+    }
+
+    /**
+     * Deletes the tasks at all of the given indices at once.
+     * The empty slots are dropped in a single pass at the end, and each posting list of the text indexes
+     * that holds any of the tasks is filtered once, so deleting k of n tasks takes O(k log n + n) time,
+     * counting every entry of the text indexes in n, instead of O(k * n). Listeners are told about the
+     * deletions from the highest index down, so every index they are given is still valid when they get it.
+     *
+     * @param indices The indices of the tasks to delete, in any order. Repeated indices are deleted once.
+     * @return The deleted tasks, in list order.
+     */
+    public List<Task> deleteTasks(int[] indices) {
+        return removeTasks(indices);
+    }
+
+    private List<Task> removeTasks(int[] indices) {
+        int[] sortedIndices = Arrays.stream(indices).sorted().distinct().toArray();
+        int[] deletedSlots = new int[sortedIndices.length];
+        List<Task> deleted = new ArrayList<>(sortedIndices.length);
+        for (int i = 0; i < sortedIndices.length; i++) {
+            deletedSlots[i] = positions.slotOf(sortedIndices[i]);
+            deleted.add(slots.get(deletedSlots[i]));
+        }
+        unindexText(deletedSlots, deleted);
+        for (int i = sortedIndices.length - 1; i >= 0; i--) {
+            positions.remove(deletedSlots[i]);
+            unindexFields(seqs.get(deletedSlots[i]), deleted.get(i));
+            if (history != null) {
+                history.remove(sortedIndices[i], deleted.get(i), deletedSlots[i], slotGeneration);
+            }
+            for (TaskListListener listener : listeners) {
+                listener.taskRemoved(sortedIndices[i], deleted.get(i));
+            }
+        }
+        compactIfSparse();
+        return deleted;
+    }
+
+    /**
+     * Drops the empty slots once they outnumber the tasks, so that compacting costs O(1) per deletion.
+     */
+    private void compactIfSparse() {
+        int emptySlots = positions.getSlotCount() - positions.size();
+        if (emptySlots < MIN_SLOTS_TO_COMPACT || emptySlots <= positions.size()) {
+            return;
+        }
+        BitSet emptied = positions.getRemovedSlots();
+        if (slots instanceof BulkRemovable) {
+            // Moving tasks with set() would parse or recreate every one of them
+            ((BulkRemovable) slots).removeAll(emptied);
+        } else {
+            int kept = 0;
+            for (int slot = 0; slot < slots.size(); slot++) {
+                if (!emptied.get(slot)) {
+                    slots.set(kept++, slots.get(slot));
+                }
+            }
+            slots.subList(kept, slots.size()).clear();
+        }
+        seqs.removeAll(emptied);
+        positions.reset(slots.size());
+        slotGeneration++;
+    }
+
+    /**
+     * Calls {@code action} with every task and its sequence number, in list order.
+     */
+    private void forEachTask(ObjIntConsumer<Task> action) {
+        for (int slot = 0; slot < slots.size(); slot++) {
+            if (positions.isLive(slot)) {
+                action.accept(slots.get(slot), seqs.get(slot));
+            }
+        }
+    }
+
+    private Task getTaskBySeq(int seq) {
+        return slots.get(seqs.indexOfSorted(seq));
+    }
+
+    /**
+     * Adds a task to every index that has been built.
+     */
+    private void indexTask(int seq, Task task) {
+        if (trigramIndex != null) {
+            trigramIndex.add(seq, task.getDescription());
+        }
+        if (tokenIndex != null) {
+            tokenIndex.add(seq, task.getDescription());
+        }
+        if (typePartitions != null) {
+            typePartitions.get(task.getTaskType()).set(seq);
+        }
+        if (statusPartitions != null) {
+            statusPartitions[getStatusPartition(task)].set(seq);
+        }
+        LocalDateTime dueDate = getDueDate(task);
+        if (dateIndex != null && dueDate != null) {
+            dateIndex.add(seq, dueDate);
+        }
+        if (eventTree != null && task instanceof Event) {
+            Event event = (Event) task;
+            eventTree.add(seq, toEpochSecond(event.getStartDate()), toEpochSecond(event.getEndDate()));
+        }
+    }
+
+    /**
+     * Removes a task from every index that has been built.
+     */
+    private void unindexTask(int seq, Task task) {
+        if (trigramIndex != null) {
+            trigramIndex.remove(seq, task.getDescription());
+        }
+        if (tokenIndex != null) {
+            tokenIndex.remove(seq, task.getDescription());
+        }
+        unindexFields(seq, task);
+    }
+
+    /**
+     * Removes the tasks in the given slots from the text indexes, filtering each posting list once.
+     */
+    private void unindexText(int[] deletedSlots, List<Task> deleted) {
+        if (trigramIndex == null && tokenIndex == null) {
+            return;
+        }
+        BitSet deletedSeqs = new BitSet();
+        List<String> descriptions = new ArrayList<>(deleted.size());
+        for (int i = 0; i < deletedSlots.length; i++) {
+            deletedSeqs.set(seqs.get(deletedSlots[i]));
+            descriptions.add(deleted.get(i).getDescription());
+        }
+        if (trigramIndex != null) {
+            trigramIndex.removeAll(deletedSeqs, descriptions);
+        }
+        if (tokenIndex != null) {
+            tokenIndex.removeAll(deletedSeqs, descriptions);
+        }
+    }
+
+    /**
+     * Removes a task from every index but the text indexes.
+     */
+    private void unindexFields(int seq, Task task) {
+        if (typePartitions != null) {
+            typePartitions.get(task.getTaskType()).clear(seq);
+        }
+        if (statusPartitions != null) {
+            statusPartitions[getStatusPartition(task)].clear(seq);
+        }
+        LocalDateTime dueDate = getDueDate(task);
+        if (dateIndex != null && dueDate != null) {
+            dateIndex.remove(seq, dueDate);
+        }
+        if (eventTree != null && task instanceof Event) {
+            eventTree.remove(seq, toEpochSecond(((Event) task).getStartDate()));
+        }
+    }
+
+    /**
+     * Returns when a task is due: the due date of a deadline, or the end of an event.
+     * To-dos have no due date.
+     */
+    private static LocalDateTime getDueDate(Task task) {
+        if (task instanceof Deadline) {
+            return ((Deadline) task).getByDate();
+        } else if (task instanceof Event) {
+            return ((Event) task).getEndDate();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the tasks due before the given date and time, earliest first.
+     * Deadlines are due on their due date, and events when they end.
+     *
+     * @param dateTime The date and time the tasks must be due before.
+     * @return A {@code TaskList} containing the tasks due before {@code dateTime}.
+     */
+    public TaskList findDueBefore(LocalDateTime dateTime) {
+        return toTaskList(getDateIndex().findBetween(null, dateTime));
+    }
+
+    /**
+     * Returns the tasks due on the given day, earliest first.
+     *
+     * @param date The day the tasks must be due on.
+     * @return A {@code TaskList} containing the tasks due on {@code date}.
+     */
+    public TaskList findDueOn(LocalDate date) {
+        return toTaskList(getDateIndex().findBetween(date.atStartOfDay(), date.plusDays(1).atStartOfDay()));
+    }
+
+    /**
+     * Deletes every task due before the given date and time.
+     *
+     * @param dateTime The date and time the tasks must be due before.
+     * @return The deleted tasks, earliest first.
+     */
+    public List<Task> deleteDueBefore(LocalDateTime dateTime) {
+        IntList dueSeqs = getDateIndex().findBetween(null, dateTime);
+        List<Task> deleted = new ArrayList<>();
+        int[] indices = new int[dueSeqs.size()];
+        for (int i = 0; i < dueSeqs.size(); i++) {
+            indices[i] = positions.positionOf(seqs.indexOfSorted(dueSeqs.get(i)));
+            deleted.add(getTaskBySeq(dueSeqs.get(i)));
+        }
+        removeTasks(indices);
+        return deleted;
+    }
+
+    private DateIndex getDateIndex() {
+        if (dateIndex == null) {
+            dateIndex = new DateIndex();
+            forEachTask((task, seq) -> {
+                LocalDateTime dueDate = getDueDate(task);
+                if (dueDate != null) {
+                    dateIndex.add(seq, dueDate);
+                }
+            });
+        }
+        return dateIndex;
+    }
+
+    /**
+     * Returns the events that overlap the given period, in order of start time.
+     * An event that ends exactly when the period starts, or starts exactly when it ends, does not overlap it.
+     *
+     * @param start The start of the period.
+     * @param end The end of the period.
+     * @return A {@code TaskList} containing the overlapping events.
+     */
+    public TaskList findOverlappingEvents(LocalDateTime start, LocalDateTime end) {
+        return toTaskList(getEventTree().findOverlapping(toEpochSecond(start), toEpochSecond(end)));
+    }
+
+    /**
+     * Returns every pair of events that overlap each other, each pair once.
+     *
+     * @return The pairs, each holding the earlier-starting event first.
+     */
+    public List<Task[]> findConflicts() {
+        List<Task[]> conflicts = new ArrayList<>();
+        for (int[] pair : getEventTree().findOverlappingPairs()) {
+            conflicts.add(new Task[] {
+                getTaskBySeq(pair[0]), getTaskBySeq(pair[1])
+            });
+        }
+        return conflicts;
+    }
+
+    private IntervalTree getEventTree() {
+        if (eventTree == null) {
+            eventTree = new IntervalTree();
+            forEachTask((task, seq) -> {
+                if (task instanceof Event) {
+                    Event event = (Event) task;
+                    eventTree.add(seq, toEpochSecond(event.getStartDate()), toEpochSecond(event.getEndDate()));
+                }
+            });
+        }
+        return eventTree;
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Collects the tasks with the given sequence numbers into a new {@code TaskList}, in the given order.
+     */
+    private TaskList toTaskList(IntList foundSeqs) {
+        TaskList found = new TaskList();
+        for (int i = 0; i < foundSeqs.size(); i++) {
+            found.addTask(getTaskBySeq(foundSeqs.get(i)));
+        }
+        return found;
     }
 
     /**
@@ -53,7 +433,11 @@ public class TaskList {
      * @return The task at the specified index.
      */
     public Task getTask(int index) {
-        return this.taskList.get(index);
+        return taskAt(index);
+    }
+
+    private Task taskAt(int index) {
+        return slots.get(positions.slotOf(index));
     }
 
     /**
@@ -62,7 +446,14 @@ public class TaskList {
      * @param index The index of the task to mark as done.
      */
     public void markTask(int index) {
-        this.taskList.get(index).markTask();
+        int slot = positions.slotOf(index);
+        Task previous = slots.get(slot);
+        Task task = copyIfShared(previous);
+        task.markTask();
+        // Lets lists that load tasks lazily know the task must now be kept in memory
+        slots.set(slot, task);
+        moveStatusPartition(seqs.get(slot), task);
+        notifyUpdated(index, previous, task);
     }
 
     /**
@@ -71,16 +462,233 @@ public class TaskList {
      * @param index The index of the task to unmark.
      */
     public void unmarkTask(int index) {
-        this.taskList.get(index).unmarkTask();
+        int slot = positions.slotOf(index);
+        Task previous = slots.get(slot);
+        Task task = copyIfShared(previous);
+        task.unmarkTask();
+        slots.set(slot, task);
+        moveStatusPartition(seqs.get(slot), task);
+        notifyUpdated(index, previous, task);
+    }
+
+    /**
+     * Returns a copy of {@code task} if earlier versions of the list may still hold it, so that changing
+     * it does not change them too.
+     */
+    private Task copyIfShared(Task task) {
+        return history == null ? task : task.copy();
+    }
+
+    private void notifyUpdated(int index, Task previous, Task task) {
+        if (history != null) {
+            history.set(index, previous, task);
+        }
+        for (TaskListListener listener : listeners) {
+            listener.taskUpdated(index, task);
+        }
+    }
+
+    /**
+     * Starts keeping every version of this list, so that changes can be undone and redone.
+     * Each change then also updates a persistent list, which shares everything the change does not
+     * touch with the version before it, so a version costs O(log n) time and space instead of a copy.
+     * Tasks are copied before they are marked or unmarked, since earlier versions still hold them.
+     */
+    public void enableHistory() {
+        if (history == null) {
+            history = new TaskHistory(tasksView);
+        }
+    }
+
+    /**
+     * Returns whether this list keeps the versions needed to undo and redo changes.
+     */
+    public boolean isKeepingHistory() {
+        return history != null;
+    }
+
+    /**
+     * Ends the current command: every change since the last call is undone or redone as one step.
+     * Does nothing if history is not kept.
+     */
+    public void commitVersion() {
+        if (history != null) {
+            history.commit();
+        }
+    }
+
+    /**
+     * Undoes the changes made by the last command.
+     * Each change is reversed in turn, so undoing takes time in proportion to the changes, not to the size
+     * of the list. A deleted task is put back into the slot it was deleted from; if the slots have been
+     * moved together since, the whole list is replaced by the earlier version instead.
+     *
+     * @return Whether there was anything to undo.
+     */
+    public boolean undo() {
+        TaskHistory.Step step = history == null ? null : history.undo();
+        if (step == null) {
+            return false;
+        }
+        if (!canPutBackRemoved(step.changes)) {
+            restore(step.before);
+            return true;
+        }
+        for (int i = step.changes.size() - 1; i >= 0; i--) {
+            undoChange(step.changes.get(i));
+        }
+        compactIfSparse();
+        return true;
+    }
+
+    /**
+     * Redoes the changes undone by the last undo, if no command has changed the list since.
+     * Takes time in proportion to the changes, like {@link #undo()}.
+     *
+     * @return Whether there was anything to redo.
+     */
+    public boolean redo() {
+        TaskHistory.Step step = history == null ? null : history.redo();
+        if (step == null) {
+            return false;
+        }
+        for (TaskHistory.Change change : step.changes) {
+            redoChange(change);
+        }
+        compactIfSparse();
+        return true;
+    }
+
+    /**
+     * Returns whether every task removed by {@code changes} is still in the slot it was removed from.
+     */
+    private boolean canPutBackRemoved(List<TaskHistory.Change> changes) {
+        for (TaskHistory.Change change : changes) {
+            if (change.kind == TaskHistory.Change.Kind.REMOVED && change.slotGeneration != slotGeneration) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * Returns the entire list of tasks.
+     * Reverses one change. The slots are not moved together until every change of the step is reversed,
+     * so that the removed tasks of the step stay where they can be put back.
+     */
+    private void undoChange(TaskHistory.Change change) {
+        switch (change.kind) {
+        case ADDED:
+            removeSlot(change.index, positions.slotOf(change.index));
+            break;
+        case REMOVED:
+            reviveSlot(change.index, change.slot, change.task);
+            break;
+        case SET:
+            setStatus(change.index, change.previous);
+            break;
+        default:
+            throw new AssertionError(change.kind);
+        }
+    }
+
+    private void redoChange(TaskHistory.Change change) {
+        switch (change.kind) {
+        case ADDED:
+            appendTask(change.task);
+            break;
+        case REMOVED:
+            change.slot = positions.slotOf(change.index);
+            change.slotGeneration = slotGeneration;
+            removeSlot(change.index, change.slot);
+            break;
+        case SET:
+            setStatus(change.index, change.task);
+            break;
+        default:
+            throw new AssertionError(change.kind);
+        }
+    }
+
+    /**
+     * Puts a removed task back into the empty slot it was removed from, which is at {@code index} again.
+     * Its sequence number is still in that slot, so every index takes it back at its old place.
+     */
+    private void reviveSlot(int index, int slot, Task task) {
+        positions.revive(slot);
+        slots.set(slot, task);
+        indexTask(seqs.get(slot), task);
+        for (TaskListListener listener : listeners) {
+            listener.taskInserted(index, task);
+        }
+    }
+
+    /**
+     * Replaces the task at {@code index} with a copy of it that differs only in status.
+     */
+    private void setStatus(int index, Task task) {
+        int slot = positions.slotOf(index);
+        slots.set(slot, task);
+        moveStatusPartition(seqs.get(slot), task);
+        for (TaskListListener listener : listeners) {
+            listener.taskUpdated(index, task);
+        }
+    }
+
+    /**
+     * Forgets every version but the current one, as when the list is changed in a way that cannot be undone.
+     */
+    public void clearHistory() {
+        if (history != null) {
+            history.clear();
+        }
+    }
+
+    /**
+     * Returns the current version of the list, which never changes, so it can be read or saved while
+     * later commands change this list. Returns null if history is not kept.
+     */
+    public List<Task> snapshot() {
+        return history == null ? null : history.getCurrent().asList();
+    }
+
+    /**
+     * Replaces the contents of this list with {@code version}, dropping every index so that each is
+     * rebuilt from the new contents when next needed. Takes O(n) time.
+     */
+    private void restore(PersistentList<Task> version) {
+        List<Task> tasks = version.asList();
+        if (slots instanceof BulkRemovable) {
+            BitSet all = new BitSet();
+            all.set(0, slots.size());
+            ((BulkRemovable) slots).removeAll(all);
+        } else {
+            slots.clear();
+        }
+        slots.addAll(tasks);
+        seqs.clear();
+        for (int i = 0; i < tasks.size(); i++) {
+            seqs.add(nextSeq++);
+        }
+        positions.reset(tasks.size());
+        slotGeneration++;
+        trigramIndex = null;
+        tokenIndex = null;
+        typePartitions = null;
+        statusPartitions = null;
+        dateIndex = null;
+        eventTree = null;
+        for (TaskListListener listener : listeners) {
+            listener.tasksReplaced(tasks);
+        }
+    }
+
+    /**
+     * Returns the entire list of tasks, as a read-only view that reflects later changes.
      *
      * @return The list of all tasks.
      */
-    public ArrayList<Task> getAllTasks() {
-        return this.taskList;
+    public List<Task> getAllTasks() {
+        return tasksView;
     }
 
     /**
@@ -89,7 +697,7 @@ public class TaskList {
      * @return The size of the task list.
      */
     public int getSize() {
-        return taskList.size();
+        return positions.size();
     }
 
     /**
@@ -98,52 +706,422 @@ public class TaskList {
      * @return The last task in the list.
      */
     public Task getLastTask() {
-        return taskList.get(getSize() - 1);
+        return taskAt(positions.size() - 1);
     }
 
     /**
-     * Searches for tasks that contain the specified keyword in their description.
+     * Searches for tasks that contain the specified keyword in their description, ignoring case.
+     * Candidates are looked up in a trigram index, or in a token index for keywords shorter than three
+     * characters, so only the descriptions of the candidates are checked.
      *
      * @param keyword The keyword to search for in the task descriptions.
      * @return A {@code TaskList} containing tasks that match the search keyword.
      */
     public TaskList findTask(String keyword) {
+        String lowerKeyword = keyword.toLowerCase();
+        if (lowerKeyword.length() >= TrigramIndex.MIN_KEYWORD_LENGTH) {
+            return findByTrigrams(lowerKeyword);
+        }
+        BitSet candidates = getTokenIndex().findCandidates(lowerKeyword);
+        if (candidates == null) {
+            return scan(task -> task.getDescription().toLowerCase().contains(lowerKeyword));
+        }
         TaskList foundTasks = new TaskList();
-        for (Task task : taskList) {
-            if (task.getDescription().toLowerCase().contains(keyword.toLowerCase())) {
+
+        boolean isExact = TokenIndex.isSingleToken(lowerKeyword);
+        for (int seq = candidates.nextSetBit(0); seq >= 0; seq = candidates.nextSetBit(seq + 1)) {
+            Task task = getTaskBySeq(seq);
+            if (isExact || task.getDescription().toLowerCase().contains(lowerKeyword)) {
                 foundTasks.addTask(task);
             }
         }
         return foundTasks;
     }
 
+    /**
+     * Searches for tasks whose description contains a match for a regular expression.
+     * No index can answer this, so every task is checked, in parallel for large lists.
+     *
+     * @param pattern The compiled regular expression to search for.
+     * @return A {@code TaskList} containing the matching tasks, in list order.
+     */
+    public TaskList findMatching(Pattern pattern) {
+        return scan(task -> pattern.matcher(task.getDescription()).find());
+    }
+
+    /**
+     * Returns the tasks that satisfy {@code condition}, checking every task, in parallel for large lists.
+     * The condition may be called from several threads at once.
+     *
+     * @param condition The condition the tasks must satisfy.
+     * @return A {@code TaskList} containing the tasks that satisfy it, in list order.
+     */
+    public TaskList filter(Predicate<Task> condition) {
+        return scan(condition);
+    }
+
+    /**
+     * Returns the tasks that satisfy every clause of {@code query}.
+     * <p>
+     * The query is planned before it is run. Each clause that an index can answer (type, status, due date,
+     * or text of at least three characters) estimates how many candidates its index would give, without
+     * collecting them. Only the candidates of the most selective clause are read, and the whole query is
+     * checked on each of them. If no clause can use an index, or even the best one would give more than
+     * an eighth of the list, every task is scanned once instead, in parallel for large lists.
+     * </p>
+     *
+     * @param query The query to run.
+     * @return A {@code TaskList} containing the matching tasks, in list order.
+     */
+    public TaskList findByQuery(Query query) {
+        Clause mostSelective = null;
+        int fewestCandidates = Integer.MAX_VALUE;
+        for (Clause clause : query.getClauses()) {
+            int estimate = estimateCandidates(clause);
+            if (estimate >= 0 && estimate < fewestCandidates) {
+                mostSelective = clause;
+                fewestCandidates = estimate;
+            }
+        }
+        // Reading a candidate looks up its slot, which costs several times more than reading the next slot
+        if (mostSelective == null || fewestCandidates > positions.size() / MAX_CANDIDATE_FRACTION) {
+            return scan(query);
+        }
+        IntList candidates = findCandidates(mostSelective);
+        TaskList foundTasks = new TaskList();
+        for (int i = 0; i < candidates.size(); i++) {
+            Task task = getTaskBySeq(candidates.get(i));
+            if (query.test(task)) {
+                foundTasks.addTask(task);
+            }
+        }
+        return foundTasks;
+    }
+
+    /**
+     * Returns how many candidates the index for {@code clause} would give, or -1 if no index can answer it.
+     */
+    private int estimateCandidates(Clause clause) {
+        if (clause instanceof Clause.TypeIs) {
+            return getTypePartitions().get(((Clause.TypeIs) clause).getType()).cardinality();
+        } else if (clause instanceof Clause.DoneIs) {
+            return getStatusPartitions()[((Clause.DoneIs) clause).isDone() ? 1 : 0].cardinality();
+        } else if (clause instanceof Clause.DueBetween) {
+            Clause.DueBetween due = (Clause.DueBetween) clause;
+            return getDateIndex().estimateBetween(due.getFrom(), due.getTo());
+        } else if (clause instanceof Clause.Contains) {
+            return getTrigramIndex().estimateCandidates(((Clause.Contains) clause).getLowerText());
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the sequence numbers of the candidates the index for {@code clause} gives, in ascending order.
+     */
+    private IntList findCandidates(Clause clause) {
+        IntList candidates = new IntList();
+        if (clause instanceof Clause.TypeIs) {
+            appendPartition(candidates, getTypePartitions().get(((Clause.TypeIs) clause).getType()),
+                    Integer.MAX_VALUE);
+        } else if (clause instanceof Clause.DoneIs) {
+            appendPartition(candidates, getStatusPartitions()[((Clause.DoneIs) clause).isDone() ? 1 : 0],
+                    Integer.MAX_VALUE);
+        } else if (clause instanceof Clause.DueBetween) {
+            Clause.DueBetween due = (Clause.DueBetween) clause;
+            candidates = getDateIndex().findBetween(due.getFrom(), due.getTo());
+            candidates.sort();
+        } else {
+            for (int seq : getTrigramIndex().findCandidates(((Clause.Contains) clause).getLowerText())) {
+                candidates.add(seq);
+            }
+        }
+        return candidates;
+    }
+
+    private TaskList scan(Predicate<Task> condition) {
+        // A lazily loaded list changes its cache on every read, so it can only be read from one thread
+        boolean isParallel = slots instanceof ArrayList || slots instanceof ColumnarTaskList;
+        IntList foundSlots = SCANNER.findSlots(slots, positions::isLive, condition, isParallel);
+        TaskList foundTasks = new TaskList();
+        for (int i = 0; i < foundSlots.size(); i++) {
+            foundTasks.addTask(slots.get(foundSlots.get(i)));
+        }
+        return foundTasks;
+    }
+
+    /**
+     * Searches for tasks with a word close to every word of {@code term}, ignoring case, to forgive typos.
+     * The words are looked up in a BK-tree of every word in the list, so only words that might be close
+     * enough are compared, instead of every description.
+     *
+     * @param term The words to search for.
+     * @param maxDistance The largest number of insertions, deletions and substitutions allowed per word.
+     * @return A {@code TaskList} containing the matching tasks, in list order.
+     */
+    public TaskList findFuzzy(String term, int maxDistance) {
+        BitSet matches = getTokenIndex().findFuzzy(term, maxDistance);
+        TaskList foundTasks = new TaskList();
+        if (matches == null) {
+            return foundTasks;
+        }
+        for (int seq = matches.nextSetBit(0); seq >= 0; seq = matches.nextSetBit(seq + 1)) {
+            foundTasks.addTask(getTaskBySeq(seq));
+        }
+        return foundTasks;
+    }
+
+    private TaskList findByTrigrams(String lowerKeyword) {
+        TaskList foundTasks = new TaskList();
+        for (int seq : getTrigramIndex().findCandidates(lowerKeyword)) {
+            Task task = getTaskBySeq(seq);
+            if (task.getDescription().toLowerCase().contains(lowerKeyword)) {
+                foundTasks.addTask(task);
+            }
+        }
+        return foundTasks;
+    }
+
+    private TokenIndex getTokenIndex() {
+        if (tokenIndex == null) {
+            tokenIndex = new TokenIndex();
+            forEachTask((task, seq) -> tokenIndex.add(seq, task.getDescription()));
+        }
+        return tokenIndex;
+    }
+
+    private TrigramIndex getTrigramIndex() {
+        if (trigramIndex == null) {
+            trigramIndex = new TrigramIndex();
+            forEachTask((task, seq) -> trigramIndex.add(seq, task.getDescription()));
+        }
+        return trigramIndex;
+    }
+
     public String getListString() {
-        if (taskList.isEmpty()) {
+        if (positions.size() == 0) {
             return "Your task list is empty.";
         }
-        StringBuilder listString = new StringBuilder("Here are your tasks:\n");
+        return buildListString("Here are your tasks:\n", 0, positions.size());
+    }
+
+    /**
+     * Returns the tasks from index {@code from} up to but not including {@code to}, one per line,
+     * numbered as they are in the whole list.
+     *
+     * @param from The index of the first task to include.
+     * @param to The index after the last task to include.
+     * @return The numbered tasks.
+     */
+    public String getListString(int from, int to) {
+        return buildListString("", from, to);
+    }
 
-        for (int i = 0; i < taskList.size(); i++) {
-            listString.append(i + 1).append(". ").append(taskList.get(i).getTaskString()).append("\n");
+    /**
+     * Builds the list in a builder sized from the tasks' display strings, which are cached by the tasks,
+     * so listing the same tasks again only allocates the result.
+     */
+    private String buildListString(String header, int from, int to) {
+        int length = header.length();
+        for (int i = from; i < to; i++) {
+            length += countDigits(i + 1) + ". ".length() + taskAt(i).getTaskString().length() + 1;
+        }
+        StringBuilder listString = new StringBuilder(length).append(header);
+        for (int i = from; i < to; i++) {
+            appendListLine(listString, i);
+        }
+        // Drop the final line break without copying
+        listString.setLength(Math.max(header.length(), listString.length() - 1));
+        return listString.toString();
+    }
+
+    /**
+     * Writes the tasks from index {@code from} up to but not including {@code to} to {@code out}, one per
+     * line, numbered as they are in the whole list.
+     * The output is flushed every {@value #LIST_CHUNK_SIZE} lines, so the first lines appear before the
+     * rest are formatted and no more than one chunk is held in memory.
+     *
+     * @param out Where to write the tasks.
+     * @param from The index of the first task to write.
+     * @param to The index after the last task to write.
+     */
+    public void writeList(Writer out, int from, int to) throws IOException {
+        StringBuilder chunk = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            appendListLine(chunk, i);
+            if ((i - from + 1) % LIST_CHUNK_SIZE == 0) {
+                out.write(chunk.toString());
+                out.flush();
+                chunk.setLength(0);
+            }
         }
-        return listString.toString().trim();
+        out.write(chunk.toString());
+        out.flush();
+    }
+
+    private static int countDigits(int number) {
+        int digits = 1;
+        for (int rest = number; rest >= 10; rest /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private void appendListLine(StringBuilder out, int index) {
+        out.append(index + 1).append(". ").append(taskAt(index).getTaskString()).append("\n");
     }
 
     /**
      * Filters tasks by type.
+     * The sequence numbers of the tasks of each type are kept in a separate partition, so only the
+     * tasks of the requested type are visited.
      *
-     * @param type The task type to filter by ('T' for ToDo, 'D' for Deadline, 'E' for Event).
+     * @param type The task type to filter by.
      * @return A {@code TaskList} containing only tasks of the specified type.
      */
-    public TaskList filterByType(String type) {
+    public TaskList filterByType(TaskType type) {
         TaskList filteredTasks = new TaskList();
-        for (Task task : taskList) {
-            if (task.getTaskType().equals(type)) {
-                filteredTasks.addTask(task);
-            }
+        BitSet partition = getTypePartitions().get(type);
+        for (int seq = partition.nextSetBit(0); seq >= 0; seq = partition.nextSetBit(seq + 1)) {
+            filteredTasks.addTask(getTaskBySeq(seq));
         }
         return filteredTasks;
     }
 
+    /**
+     * Returns the indices of the completed tasks, in ascending order.
+     * Tasks held in a list that can tell whether they are done on its own, such as a lazily loaded one,
+     * are not parsed to find out.
+     *
+     * @return The indices of the completed tasks.
+     */
+    public int[] getDoneIndices() {
+        BitSet done = getStatusPartitions()[1];
+        int[] indices = new int[done.cardinality()];
+        int i = 0;
+        for (int seq = done.nextSetBit(0); seq >= 0; seq = done.nextSetBit(seq + 1)) {
+            indices[i++] = positions.positionOf(seqs.indexOfSorted(seq));
+        }
+        return indices;
+    }
+
+    private EnumMap<TaskType, BitSet> getTypePartitions() {
+        if (typePartitions == null) {
+            typePartitions = new EnumMap<>(TaskType.class);
+            for (TaskType taskType : TaskType.values()) {
+                typePartitions.put(taskType, new BitSet());
+            }
+            forEachTask((task, seq) -> typePartitions.get(task.getTaskType()).set(seq));
+        }
+        return typePartitions;
+    }
+
+    private BitSet[] getStatusPartitions() {
+        if (statusPartitions == null) {
+            statusPartitions = new BitSet[] {new BitSet(), new BitSet()};
+            if (slots instanceof StatusReadable) {
+                // Reading the task objects would parse or recreate every one of them
+                StatusReadable statuses = (StatusReadable) slots;
+                for (int slot = 0; slot < slots.size(); slot++) {
+                    if (positions.isLive(slot)) {
+                        statusPartitions[statuses.isDone(slot) ? 1 : 0].set(seqs.get(slot));
+                    }
+                }
+            } else {
+                forEachTask((task, seq) -> statusPartitions[getStatusPartition(task)].set(seq));
+            }
+        }
+        return statusPartitions;
+    }
+
+    private static int getStatusPartition(Task task) {
+        return task.taskStatus() ? 1 : 0;
+    }
 
+    /**
+     * Moves a task that has just been marked or unmarked to the partition of its new status.
+     */
+    private void moveStatusPartition(int seq, Task task) {
+        if (statusPartitions != null) {
+            statusPartitions[1 - getStatusPartition(task)].clear(seq);
+            statusPartitions[getStatusPartition(task)].set(seq);
+        }
+    }
+
+    /**
+     * Returns the first tasks in the given order, one per line, each numbered with its index in the
+     * whole list so that it can still be marked or deleted by that number.
+     * The tasks are read in order from indexes that are kept up to date as the list changes, instead of
+     * copying and sorting the list, so listing k tasks by date takes O(log n + k log n) time. The
+     * partitions by status and type are bit sets, which also skip over runs of other tasks a word at a time.
+     *
+     * @param order The order to list the tasks in.
+     * @param limit The largest number of tasks to list.
+     * @return The numbered tasks.
+     */
+    public String getSortedListString(SortOrder order, int limit) {
+        IntList sortedSeqs = new IntList();
+        switch (order) {
+        case DATE:
+            IntList datedSeqs = getDateIndex().findFirst(limit);
+            for (int i = 0; i < datedSeqs.size(); i++) {
+                sortedSeqs.add(datedSeqs.get(i));
+            }
+            appendPartition(sortedSeqs, getTypePartitions().get(TaskType.TODO), limit);
+            break;
+        case STATUS:
+            for (BitSet partition : getStatusPartitions()) {
+                appendPartition(sortedSeqs, partition, limit);
+            }
+            break;
+        default:
+            for (TaskType taskType : TaskType.values()) {
+                appendPartition(sortedSeqs, getTypePartitions().get(taskType), limit);
+            }
+            break;
+        }
+        StringBuilder listString = new StringBuilder();
+        for (int i = 0; i < sortedSeqs.size(); i++) {
+            appendListLine(listString, positions.positionOf(seqs.indexOfSorted(sortedSeqs.get(i))));
+        }
+        listString.setLength(Math.max(0, listString.length() - 1));
+        return listString.toString();
+    }
+
+    /**
+     * Appends the sequence numbers in {@code partition}, in ascending order, until there are {@code limit}.
+     */
+    private static void appendPartition(IntList sortedSeqs, BitSet partition, int limit) {
+        for (int seq = partition.nextSetBit(0); seq >= 0 && sortedSeqs.size() < limit;
+                seq = partition.nextSetBit(seq + 1)) {
+            sortedSeqs.add(seq);
+        }
+    }
+
+    /**
+     * Builds every index that has not been built yet, instead of waiting for the first search that needs it.
+     * After this, searching changes nothing but caches that are safe to fill from several threads at once.
+     */
+    protected void buildIndexes() {
+        getTokenIndex();
+        getTrigramIndex();
+        getTypePartitions();
+        getStatusPartitions();
+        getDateIndex();
+        getEventTree();
+    }
+
+    /**
+     * Represents the tasks in list order, skipping empty slots.
+     */
+    private class TasksView extends AbstractList<Task> implements RandomAccess {
+        @Override
+        public Task get(int index) {
+            return taskAt(index);
+        }
+
+        @Override
+        public int size() {
+            return positions.size();
+        }
+    }
 }
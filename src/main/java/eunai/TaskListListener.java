@@ -0,0 +1,52 @@
+package eunai;
+
+import java.util.List;
+
+import eunai.task.Task;
+
+/**
+ * Represents a component that wants to be told about every change made to a {@link TaskList}.
+ * Used by {@link Storage} to save mutations as they happen instead of rewriting the whole file.
+ */
+public interface TaskListListener {
+
+    /**
+     * Called after a task has been appended to the list.
+     *
+     * @param index The index the task was added at.
+     * @param task The task that was added.
+     */
+    void taskAdded(int index, Task task);
+
+    /**
+     * Called after a task has been removed from the list.
+     *
+     * @param index The index the task was removed from.
+     * @param task The task that was removed.
+     */
+    void taskRemoved(int index, Task task);
+
+    /**
+     * Called after a removed task has been put back at the index it was removed from, as by undo.
+     *
+     * @param index The index the task was put back at.
+     * @param task The task that was put back.
+     */
+    void taskInserted(int index, Task task);
+
+    /**
+     * Called after the completion status of a task has changed.
+     *
+     * @param index The index of the task.
+     * @param task The task that was updated.
+     */
+    void taskUpdated(int index, Task task);
+
+    /**
+     * Called after the whole contents of the list have been replaced, as by an undo that cannot put tasks
+     * back one by one.
+     *
+     * @param tasks The new contents of the list. The list never changes, so it can be read at any time.
+     */
+    void tasksReplaced(List<Task> tasks);
+}
@@ -0,0 +1,13 @@
+package eunai;
+
+/**
+ * Represents the ways saved tasks can be held in memory.
+ */
+public enum TaskListMode {
+    /** Every task is parsed into its own object at startup, and changes can be undone. */
+    EAGER,
+    /** Tasks are only parsed when they are first used, for very large task files. */
+    LAZY,
+    /** Tasks are stored column by column, taking several times less memory, and recreated when used. */
+    COLUMNAR
+}
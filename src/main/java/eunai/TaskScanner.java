@@ -0,0 +1,103 @@
+package eunai;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import eunai.index.IntList;
+import eunai.task.Task;
+
+/**
+ * Finds the tasks that match a condition by checking every one of them, using every available core
+ * for large lists.
+ * <p>
+ * Indexes answer most searches, but conditions such as regular expressions can only be answered by
+ * checking each task. Above {@value #MIN_PARALLEL_SIZE} slots, the slots are split in half until each
+ * part is small enough, the parts are checked in parallel on a {@link ForkJoinPool}, and the matches
+ * are joined back together in slot order, so the result is the same as a scan on one thread.
+ * </p>
+ */
+class TaskScanner {
+    /** Lists with fewer slots than this are checked on the calling thread. */
+    static final int MIN_PARALLEL_SIZE = 50_000;
+
+    private static final int MIN_CHUNK_SIZE = 8_192;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+
+    TaskScanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the live slots whose task matches {@code condition}, in ascending order.
+     * The slots are read from several threads at once, so {@code slots} must be safe to read that way
+     * unless {@code isParallel} is false.
+     *
+     * @param slots The slots to check.
+     * @param isLive Whether a slot holds a task.
+     * @param condition The condition to check each task against.
+     * @param isParallel Whether the slots may be checked in parallel.
+     * @return The matching slots.
+     */
+    IntList findSlots(List<Task> slots, IntPredicate isLive, Predicate<Task> condition, boolean isParallel) {
+        if (!isParallel || slots.size() < MIN_PARALLEL_SIZE || pool.getParallelism() == 1) {
+            return scan(slots, isLive, condition, 0, slots.size());
+        }
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, slots.size() / (pool.getParallelism() * CHUNKS_PER_THREAD));
+        return pool.invoke(new ScanRange(slots, isLive, condition, 0, slots.size(), chunkSize));
+    }
+
+    private static IntList scan(List<Task> slots, IntPredicate isLive, Predicate<Task> condition,
+                                int from, int to) {
+        IntList found = new IntList();
+        for (int slot = from; slot < to; slot++) {
+            if (isLive.test(slot) && condition.test(slots.get(slot))) {
+                found.add(slot);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks slots {@code [from, to)} by splitting the range in half until it is at most one chunk.
+     * Tasks are only serializable because {@code ForkJoinTask} is; they are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static class ScanRange extends RecursiveTask<IntList> {
+        private final List<Task> slots;
+        private final IntPredicate isLive;
+        private final Predicate<Task> condition;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        ScanRange(List<Task> slots, IntPredicate isLive, Predicate<Task> condition, int from, int to,
+                  int chunkSize) {
+            this.slots = slots;
+            this.isLive = isLive;
+            this.condition = condition;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected IntList compute() {
+            if (to - from <= chunkSize) {
+                return scan(slots, isLive, condition, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScanRange left = new ScanRange(slots, isLive, condition, from, middle, chunkSize);
+            ScanRange right = new ScanRange(slots, isLive, condition, middle, to, chunkSize);
+            left.fork();
+            IntList rightFound = right.compute();
+            IntList found = left.join();
+            found.addAll(rightFound);
+            return found;
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package eunai.command;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+import eunai.DateParser;
+import eunai.SortOrder;
 import eunai.Storage;
 import eunai.TaskList;
 import eunai.exception.EmptyTaskException;
+import eunai.query.Query;
 import eunai.task.Deadline;
 import eunai.task.Event;
 import eunai.task.Task;
+import eunai.task.TaskType;
 import eunai.task.ToDo;
 import eunai.ui.Ui;
 import javafx.animation.PauseTransition;
@@ -22,6 +33,17 @@ import javafx.util.Duration;
  * (e.g., add, delete, mark, unmark).
  */
 public class Command {
+    private static final String ARCHIVED_FLAG = "--archived";
+    private static final String FUZZY_PREFIX = "~";
+    private static final String REGEX_DELIMITER = "/";
+    // Words longer than this may have two typos instead of one
+    private static final int MAX_ONE_TYPO_LENGTH = 5;
+    private static final int LIST_PAGE_SIZE = 50;
+    private static final String LIST_USAGE = "Usage: list, list <page> or list <from>-<to>\ne.g. list 2 or list 51-100";
+    private static final String SORT_FLAG = "--sort";
+    private static final String LIMIT_FLAG = "--limit";
+    private static final String SORT_USAGE = "Usage: list --sort date|status|type [--limit <count>]\n"
+            + "e.g. list --sort date --limit 20";
 
     /**
      * Executes the user command string by determining whether it is a mass operation
@@ -38,11 +60,41 @@ public class Command {
         assert tasks != null : "tasks should not be null";
         assert ui != null : "ui should not be null";
         assert storage != null : "storage should not be null";
-        if (input.contains(",")) {
-            return handleMassOps(input, tasks);
+        String response;
+        if (isMassOperation(input)) {
+            response = handleMassOps(input, tasks);
+        } else {
+            CommandParser.Command commandType = CommandParser.parseCommand(input);
+            response = routeCommand(commandType, input, tasks, ui, storage);
+        }
+        // Everything this command changed is undone as one step
+        tasks.commitVersion();
+        // The changes made by this command are written in the background, as one group
+        storage.commit();
+        if (storage.isSaveFailing()) {
+            response += "\nHeads up! I couldn't save your recent changes to disk.";
+        }
+        return response;
+    }
+
+    /**
+     * Returns whether the input applies a command to several comma-separated task numbers, as in
+     * "mark 1,2,4". Only mark, unmark and delete take several numbers, so commas in other commands,
+     * such as "find /a{1,3}/", are left as they are.
+     *
+     * @param input The full user input command
+     * @return Whether the input is a mass operation
+     */
+    public static boolean isMassOperation(String input) {
+        if (!input.contains(",")) {
+            return false;
+        }
+        switch (CommandParser.parseCommand(input)) {
+        case MARK, UNMARK, DELETE:
+            return true;
+        default:
+            return false;
         }
-        CommandParser.Command commandType = CommandParser.parseCommand(input);
-        return routeCommand(commandType, input, tasks, ui, storage);
     }
 
     /**
@@ -65,26 +117,42 @@ public class Command {
         case EVENT:
             return handleEvent(input, tasks);
         case LIST:
-            return handleList(tasks);
+            return handleList(input, tasks);
         case MARK:
             return handleMark(input, tasks);
         case UNMARK:
             return handleUnmark(input, tasks);
         case FIND:
-            return handleFind(input, tasks);
+            return handleFind(input, tasks, storage);
+        case ARCHIVE:
+            return handleArchive(tasks, storage);
         case DELETE:
             return handleDelete(input, tasks);
+        case DELETE_BEFORE:
+            return handleDeleteBefore(input, tasks);
+        case DUE_BEFORE:
+            return handleDueBefore(input, tasks);
+        case ON:
+            return handleOn(input, tasks);
+        case CONFLICTS:
+            return handleConflicts(tasks);
+        case UNDO:
+            return handleUndo(tasks);
+        case REDO:
+            return handleRedo(tasks);
         case BYE:
-            return handleExit(tasks, storage);
+            return handleExit(storage);
         default:
             return "Hmm, I don't understand what this means.\n"
-                    + "Try valid commands like: todo, deadline, event, list, mark, unmark, find, delete, bye.";
+                    + "Try valid commands like: todo, deadline, event, list, mark, unmark, find, delete, archive,\n"
+                    + "due before, on, delete before, conflicts, undo, redo, bye.";
         }
     }
 
     /**
      * Handles mass operations such as "delete 2,5,6" or "mark 1,2,4" by parsing all indices,
      * sorting them in descending order, and applying the requested operation.
+     * Deletions are applied together in a single pass over the list.
      *
      * @param input The user command string containing the operation and comma-separated indices
      * @param tasks The TaskList that stores the user's tasks
@@ -112,23 +180,24 @@ public class Command {
                 invalidIndices.add(indexStr + " (not a valid number)");
             }
         }
-        validIndices.sort(Collections.reverseOrder());
+        validIndices = new ArrayList<>(new TreeSet<>(validIndices).descendingSet());
         StringBuilder result = new StringBuilder();
         for (int idx : validIndices) {
             Task task = tasks.getTask(idx);
             switch (commandType) {
             case MARK:
-                task.markTask();
+                // Marking may replace the task with a marked copy, so the task is fetched again
+                tasks.markTask(idx);
                 result.append("Marked task ").append(idx + 1).append(" as done:\n")
-                        .append(task.getTaskString()).append("\n");
+                        .append(tasks.getTask(idx).getTaskString()).append("\n");
                 break;
             case UNMARK:
-                task.unmarkTask();
+                tasks.unmarkTask(idx);
                 result.append("Unmarked task ").append(idx + 1).append(":\n")
-                        .append(task.getTaskString()).append("\n");
+                        .append(tasks.getTask(idx).getTaskString()).append("\n");
                 break;
             case DELETE:
-                tasks.deleteTask(idx);
+                // Deleted all at once below, so the indices are not shifted by each other
                 result.append("Deleted task ").append(idx + 1).append(":\n")
                         .append(task.getTaskString()).append("\n");
                 break;
@@ -136,6 +205,9 @@ public class Command {
                 break;
             }
         }
+        if (commandType == CommandParser.Command.DELETE) {
+            tasks.deleteTasks(validIndices.stream().mapToInt(Integer::intValue).toArray());
+        }
         if (!invalidIndices.isEmpty()) {
             result.append("\nSkipped invalid task numbers:\n");
             for (String bad : invalidIndices) {
@@ -254,9 +326,14 @@ public class Command {
                         "OOPS!!! An event requires: <description> /from <start> /to <end>."
                 );
             }
-            Task newTask = new Event(parts[0], false, parts[1], parts[2]);
+            Event newTask = new Event(parts[0], false, parts[1], parts[2]);
+            TaskList clashes = tasks.findOverlappingEvents(newTask.getStartDate(), newTask.getEndDate());
             tasks.addTask(newTask);
-            return getTaskAddedMessage(newTask, tasks);
+            String message = getTaskAddedMessage(newTask, tasks);
+            if (clashes.getSize() > 0) {
+                message += "\nHeads up! It overlaps with:\n" + clashes.getListString();
+            }
+            return message;
         } catch (EmptyTaskException e) {
             return e.getMessage()
                     + "\nUsage: event <description> /from <date/time> /to <date/time>\n"
@@ -265,15 +342,145 @@ public class Command {
     }
 
     /**
-     * Lists all tasks in the user's task list.
+     * Displays the task list, or one page or range of it.
+     * Lists longer than a page only show their first page unless a page or range is given,
+     * so the response stays small however many tasks there are.
+     *
+     * @param input The user command (e.g., "list", "list 2" or "list 51-100")
+     * @param tasks The TaskList storing tasks
+     * @return The requested tasks, or a message if the list is empty or the page does not exist
+     */
+    private static String handleList(String input, TaskList tasks) {
+        if (tasks.getSize() == 0) {
+            return "Your task list is empty. Why not add some tasks?";
+        }
+        String argument = input.trim().substring("list".length()).trim();
+        if (argument.startsWith(SORT_FLAG)) {
+            return handleSortedList(argument.substring(SORT_FLAG.length()).trim(), tasks);
+        }
+        try {
+            int[] range = parseListRange(input, tasks.getSize());
+            if (range == null && tasks.getSize() <= LIST_PAGE_SIZE) {
+                return tasks.getListString();
+            } else if (range == null) {
+                range = new int[] {0, LIST_PAGE_SIZE};
+            }
+            String listString = getListHeader(range, tasks.getSize()) + tasks.getListString(range[0], range[1]);
+            if (range[1] < tasks.getSize()) {
+                listString += "\nType list <page> or list <from>-<to> to see more.";
+            }
+            return listString;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage() + "\n" + LIST_USAGE;
+        }
+    }
+
+    /**
+     * Writes the task list, or one page or range of it, straight to {@code out}.
+     * Unlike the response of {@link #execute}, the whole list is written when no page is given, since
+     * it is written a chunk at a time instead of being built up in memory first.
+     *
+     * @param input The user command (e.g., "list", "list 2" or "list 51-100")
+     * @param tasks The TaskList storing tasks
+     * @param out Where to write the tasks
+     */
+    public static void streamList(String input, TaskList tasks, Writer out) throws IOException {
+        if (tasks.getSize() == 0) {
+            out.write("Your task list is empty. Why not add some tasks?\n");
+            out.flush();
+            return;
+        }
+        if (input.trim().substring("list".length()).trim().startsWith(SORT_FLAG)) {
+            // Sorted lists are limited to a page or a given count, so they are small enough to build first
+            out.write(handleList(input, tasks) + "\n");
+            out.flush();
+            return;
+        }
+        int[] range;
+        try {
+            range = parseListRange(input, tasks.getSize());
+        } catch (IllegalArgumentException e) {
+            out.write(e.getMessage() + "\n" + LIST_USAGE + "\n");
+            out.flush();
+            return;
+        }
+        if (range == null) {
+            out.write("Here are your tasks:\n");
+            tasks.writeList(out, 0, tasks.getSize());
+        } else {
+            out.write(getListHeader(range, tasks.getSize()));
+            tasks.writeList(out, range[0], range[1]);
+        }
+    }
+
+    /**
+     * Lists the tasks in a given order, such as "date" or "status --limit 20".
+     * Without a limit, the first page of tasks is listed.
+     *
+     * @param arguments The order, optionally followed by a limit
+     * @param tasks The TaskList storing tasks
+     * @return The sorted tasks, numbered as they are in the list, or an error message
+     */
+    private static String handleSortedList(String arguments, TaskList tasks) {
+        String[] parts = arguments.split("\\s+");
+        SortOrder order;
+        try {
+            order = SortOrder.valueOf(parts[0].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return "Oops! I can only sort by date, status or type.\n" + SORT_USAGE;
+        }
+        int limit = LIST_PAGE_SIZE;
+        if (parts.length == 3 && parts[1].equals(LIMIT_FLAG) && parts[2].matches("\\d{1,9}")) {
+            limit = Integer.parseInt(parts[2]);
+        } else if (parts.length != 1) {
+            return "Oops! '" + arguments + "' is not an order and a limit.\n" + SORT_USAGE;
+        }
+        if (limit == 0) {
+            return "Oops! The limit must be at least 1.\n" + SORT_USAGE;
+        }
+        String header = limit >= tasks.getSize()
+                ? "Here are your tasks by " + parts[0].toLowerCase() + ":\n"
+                : "Here are the first " + limit + " of your " + tasks.getSize() + " tasks by "
+                        + parts[0].toLowerCase() + ":\n";
+        return header + tasks.getSortedListString(order, limit);
+    }
+
+    /**
+     * Returns the tasks requested by "list <page>" or "list <from>-<to>", or null for a plain "list".
      *
-     * @param tasks The TaskList storing the user's tasks
-     * @return The formatted list of tasks or a message if empty
+     * @return The index of the first task and the index after the last task.
+     * @throws IllegalArgumentException If the argument is not a page or range in the list.
      */
-    private static String handleList(TaskList tasks) {
-        return (tasks.getSize() == 0)
-                ? "Your task list is empty. Why not add some tasks?"
-                : tasks.getListString();
+    private static int[] parseListRange(String input, int size) {
+        String argument = input.trim().substring("list".length()).trim();
+        if (argument.isEmpty()) {
+            return null;
+        }
+        if (argument.matches("\\d{1,9}")) {
+            int page = Integer.parseInt(argument);
+            int pageCount = (size + LIST_PAGE_SIZE - 1) / LIST_PAGE_SIZE;
+            if (page < 1 || page > pageCount) {
+                throw new IllegalArgumentException("Oops! There is no page " + page + ". You have "
+                        + pageCount + " page(s) of tasks.");
+            }
+            int from = (page - 1) * LIST_PAGE_SIZE;
+            return new int[] {from, Math.min(from + LIST_PAGE_SIZE, size)};
+        }
+        String[] bounds = argument.split("\\s*-\\s*");
+        if (bounds.length != 2 || !bounds[0].matches("\\d{1,9}") || !bounds[1].matches("\\d{1,9}")) {
+            throw new IllegalArgumentException("Oops! '" + argument + "' is not a page number or a range.");
+        }
+        int from = Integer.parseInt(bounds[0]);
+        int to = Integer.parseInt(bounds[1]);
+        if (from < 1 || from > to || from > size) {
+            throw new IllegalArgumentException("Oops! Tasks " + argument + " are not in your list of "
+                    + size + " tasks.");
+        }
+        return new int[] {from - 1, Math.min(to, size)};
+    }
+
+    private static String getListHeader(int[] range, int size) {
+        return "Here are tasks " + (range[0] + 1) + "-" + range[1] + " of " + size + ":\n";
     }
 
     /**
@@ -285,8 +492,9 @@ public class Command {
      */
     private static String handleMark(String input, TaskList tasks) {
         try {
-            Task task = getTaskFromInput(input, tasks, 5);
-            task.markTask();
+            int index = getTaskIndex(input, 5);
+            tasks.markTask(index);
+            Task task = tasks.getTask(index);
             return "Great job! I've marked this task as done:\n" + task.getTaskString();
         } catch (NumberFormatException nfe) {
             return "Oh no...Please enter a valid number after 'mark'. e.g. 'mark 2'";
@@ -306,8 +514,9 @@ public class Command {
      */
     private static String handleUnmark(String input, TaskList tasks) {
         try {
-            Task task = getTaskFromInput(input, tasks, 7);
-            task.unmarkTask();
+            int index = getTaskIndex(input, 7);
+            tasks.unmarkTask(index);
+            Task task = tasks.getTask(index);
             return "Alright, I've marked this task as NOT done:\n" + task.getTaskString();
         } catch (NumberFormatException nfe) {
             return "Oh no...Please enter a valid number after 'unmark'. e.g. 'unmark 3'";
@@ -342,15 +551,134 @@ public class Command {
     }
 
     /**
-     * Finds tasks that match a keyword or a special marker.
+     * Moves every completed task out of the list and into the archive.
+     *
+     * @param tasks   The TaskList storing tasks
+     * @param storage The Storage holding the archive
+     * @return A message saying how many tasks were archived
+     */
+    private static String handleArchive(TaskList tasks, Storage storage) {
+        try {
+            int archivedCount = storage.archiveDoneTasks(tasks).size();
+            // Undoing would bring archived tasks back while they are still in the archive
+            tasks.clearHistory();
+            if (archivedCount == 0) {
+                return "There are no completed tasks to archive.";
+            }
+            return "Tidied up! I've archived " + archivedCount + " completed task(s).\n"
+                    + "Search them with 'find --archived <keyword>'.\n"
+                    + "Now you have " + tasks.getSize() + " tasks in the list.";
+        } catch (IOException e) {
+            return "Oops! I couldn't write to the archive, so your completed tasks are still in the list.";
+        }
+    }
+
+    /**
+     * Lists the tasks due before a date (e.g., "due before 2025-02-28").
+     * Deadlines are due on their due date, and events when they end.
+     *
+     * @param input The user command
+     * @param tasks The TaskList containing tasks
+     * @return A list of the tasks due before the date or an error message if the date is invalid
+     */
+    private static String handleDueBefore(String input, TaskList tasks) {
+        try {
+            LocalDateTime dateTime = DateParser.parseDate(extractDateArgument(input, "due before"));
+            TaskList dueTasks = tasks.findDueBefore(dateTime);
+            if (dueTasks.getSize() == 0) {
+                return "Nothing is due before " + DateParser.formatDate(dateTime) + ". Nice!";
+            }
+            return "Found " + dueTasks.getSize() + " task(s) due before " + DateParser.formatDate(dateTime) + ":\n"
+                    + dueTasks.getListString();
+        } catch (EmptyTaskException | IllegalArgumentException e) {
+            return e.getMessage() + "\nUsage: due before <date/time>\ne.g. due before 2025-02-28 23:59";
+        }
+    }
+
+    /**
+     * Lists the tasks due on a day (e.g., "on 2025-02-28").
+     *
+     * @param input The user command
+     * @param tasks The TaskList containing tasks
+     * @return A list of the tasks due on the day or an error message if the date is invalid
+     */
+    private static String handleOn(String input, TaskList tasks) {
+        try {
+            LocalDate date = DateParser.parseDate(extractDateArgument(input, "on")).toLocalDate();
+            TaskList dueTasks = tasks.findDueOn(date);
+            if (dueTasks.getSize() == 0) {
+                return "Nothing is due on " + date + ".";
+            }
+            return "Found " + dueTasks.getSize() + " task(s) due on " + date + ":\n"
+                    + dueTasks.getListString();
+        } catch (EmptyTaskException | IllegalArgumentException e) {
+            return e.getMessage() + "\nUsage: on <date>\ne.g. on 2025-02-28";
+        }
+    }
+
+    /**
+     * Deletes every task due before a date (e.g., "delete before 2025-01-01").
      *
-     * @param input The user command - find
+     * @param input The user command
      * @param tasks The TaskList containing tasks
+     * @return A message listing the deleted tasks or an error message if the date is invalid
+     */
+    private static String handleDeleteBefore(String input, TaskList tasks) {
+        try {
+            LocalDateTime dateTime = DateParser.parseDate(extractDateArgument(input, "delete before"));
+            List<Task> deleted = tasks.deleteDueBefore(dateTime);
+            if (deleted.isEmpty()) {
+                return "Nothing is due before " + DateParser.formatDate(dateTime) + ", so nothing was removed.";
+            }
+            StringBuilder result = new StringBuilder("I've removed " + deleted.size() + " task(s) due before "
+                    + DateParser.formatDate(dateTime) + ":\n");
+            for (Task task : deleted) {
+                result.append(task.getTaskString()).append("\n");
+            }
+            return result.append("Now you have ").append(tasks.getSize()).append(" tasks in the list.").toString();
+        } catch (EmptyTaskException | IllegalArgumentException e) {
+            return e.getMessage() + "\nUsage: delete before <date/time>\ne.g. delete before 2025-01-01";
+        }
+    }
+
+    /**
+     * Extracts the date given after a command word (e.g., "2025-02-28" in "on 2025-02-28").
+     *
+     * @param input       The user command
+     * @param commandWord The words before the date
+     * @return The date string
+     * @throws EmptyTaskException If no date is given
+     */
+    private static String extractDateArgument(String input, String commandWord) throws EmptyTaskException {
+        String dateInput = input.trim().substring(commandWord.length()).trim();
+        if (dateInput.isEmpty()) {
+            throw new EmptyTaskException("Oops! Please tell me the date for '" + commandWord + "'.");
+        }
+        return dateInput;
+    }
+
+    /**
+     * Finds tasks that match a keyword or a special marker.
+     * Starting the keyword with {@code --archived} searches the archived tasks instead.
+     *
+     * @param input   The user command - find
+     * @param tasks   The TaskList containing tasks
+     * @param storage The Storage holding the archive
      * @return A list of matching tasks or an error message if the search is invalid
      */
-    private static String handleFind(String input, TaskList tasks) {
+    private static String handleFind(String input, TaskList tasks, Storage storage) {
         try {
             String keyword = extractFindKeyword(input);
+            if (keyword.startsWith(ARCHIVED_FLAG)) {
+                return findArchived(keyword.substring(ARCHIVED_FLAG.length()).trim(), storage);
+            } else if (keyword.startsWith(FUZZY_PREFIX)) {
+                return findFuzzy(keyword.substring(FUZZY_PREFIX.length()).trim(), tasks);
+            } else if (keyword.length() > 2 && keyword.startsWith(REGEX_DELIMITER)
+                    && keyword.endsWith(REGEX_DELIMITER)) {
+                return findMatching(keyword.substring(1, keyword.length() - 1), tasks);
+            } else if (Query.isQuery(keyword)) {
+                return findByQuery(keyword, tasks);
+            }
             TaskList foundTasks = filterTasksByKeyword(tasks, keyword);
             if (foundTasks.getSize() == 0) {
                 return "No tasks match '" + keyword + "'. Try another keyword!";
@@ -359,8 +687,10 @@ public class Command {
                     + foundTasks.getListString();
         } catch (EmptyTaskException e) {
             return e.getMessage()
-                    + "\nUsage: find <keyword>\n"
+                    + "\nUsage: find <keyword>, find ~<keyword> to allow typos, find /<regex>/,"
+                    + " or find --archived <keyword> to search archived tasks\n"
                     + "Alternatively, find <task-type> using <todo>, <deadline>, or <event>.\n"
+                    + "Or combine filters: find type:deadline done:false before:2025-03-01 \"report\"\n"
                     + "e.g. 'find <deadline>'";
         } catch (Exception e) {
             return "Sorry manz, that was an invalid search."
@@ -368,6 +698,99 @@ public class Command {
         }
     }
 
+    /**
+     * Searches for tasks with words close to the words of a term, allowing one typo per word, or two in
+     * words longer than {@value #MAX_ONE_TYPO_LENGTH} characters.
+     *
+     * @param term The words to search for
+     * @param tasks The TaskList containing tasks
+     * @return A list of matching tasks or a message if there are none
+     * @throws EmptyTaskException If no term is provided
+     */
+    private static String findFuzzy(String term, TaskList tasks) throws EmptyTaskException {
+        if (term.isEmpty()) {
+            throw new EmptyTaskException("Oops! The keyword for 'find ~' cannot be empty.");
+        }
+        int shortestWord = Arrays.stream(term.split("\\s+")).mapToInt(String::length).min().orElse(0);
+        TaskList foundTasks = tasks.findFuzzy(term, shortestWord > MAX_ONE_TYPO_LENGTH ? 2 : 1);
+        if (foundTasks.getSize() == 0) {
+            return "No tasks come close to '" + term + "'. Try another keyword!";
+        }
+        return "Found " + foundTasks.getSize() + " task(s) close to '" + term + "':\n"
+                + foundTasks.getListString();
+    }
+
+    /**
+     * Searches for tasks that satisfy every clause of a structured query,
+     * e.g. {@code type:deadline done:false before:2025-03-01 "report"}.
+     *
+     * @param input The query
+     * @param tasks The TaskList containing tasks
+     * @return A list of matching tasks or a message if there are none or the query is invalid
+     */
+    private static String findByQuery(String input, TaskList tasks) {
+        Query query;
+        try {
+            query = Query.parse(input);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage() + "\nUsage: find type:todo|deadline|event done:true|false before:<date>"
+                    + " after:<date> on:<date> \"<text>\"";
+        }
+        TaskList foundTasks = tasks.findByQuery(query);
+        if (foundTasks.getSize() == 0) {
+            return "No tasks match '" + input + "'. Try fewer filters!";
+        }
+        return "Found " + foundTasks.getSize() + " matching task(s):\n" + foundTasks.getListString();
+    }
+
+    /**
+     * Searches for tasks whose description matches a regular expression, ignoring case.
+     *
+     * @param regex The regular expression, without the surrounding slashes
+     * @param tasks The TaskList containing tasks
+     * @return A list of matching tasks or a message if there are none or the expression is invalid
+     */
+    private static String findMatching(String regex, TaskList tasks) {
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        } catch (PatternSyntaxException e) {
+            return "Oops! '" + regex + "' is not a valid regular expression: " + e.getDescription() + ".";
+        }
+        TaskList foundTasks = tasks.findMatching(pattern);
+        if (foundTasks.getSize() == 0) {
+            return "No tasks match /" + regex + "/. Try another pattern!";
+        }
+        return "Found " + foundTasks.getSize() + " matching task(s):\n" + foundTasks.getListString();
+    }
+
+    /**
+     * Searches the archived tasks for a keyword.
+     *
+     * @param keyword The keyword to search for
+     * @param storage The Storage holding the archive
+     * @return A list of matching archived tasks or a message if there are none
+     * @throws EmptyTaskException If no keyword is provided
+     */
+    private static String findArchived(String keyword, Storage storage) throws EmptyTaskException {
+        if (keyword.isEmpty()) {
+            throw new EmptyTaskException("Oops! The keyword for 'find --archived' cannot be empty.");
+        }
+        try {
+            List<Task> foundTasks = storage.searchArchive(keyword);
+            if (foundTasks.isEmpty()) {
+                return "No archived tasks match '" + keyword + "'.";
+            }
+            StringBuilder result = new StringBuilder("Found " + foundTasks.size() + " archived task(s):\n");
+            for (int i = 0; i < foundTasks.size(); i++) {
+                result.append(i + 1).append(". ").append(foundTasks.get(i).getTaskString()).append("\n");
+            }
+            return result.toString().trim();
+        } catch (IOException e) {
+            return "Sorry, I couldn't read the archive.";
+        }
+    }
+
     /**
      * Extracts the keyword for a find operation from the user command.
      *
@@ -392,26 +815,25 @@ public class Command {
     private static TaskList filterTasksByKeyword(TaskList tasks, String keyword) {
         switch (keyword.toLowerCase()) {
         case "<todo>":
-            return tasks.filterByType("T");
+            return tasks.filterByType(TaskType.TODO);
         case "<deadline>":
-            return tasks.filterByType("D");
+            return tasks.filterByType(TaskType.DEADLINE);
         case "<event>":
-            return tasks.filterByType("E");
+            return tasks.filterByType(TaskType.EVENT);
         default:
             return tasks.findTask(keyword);
         }
     }
 
     /**
-     * Handles the exit command by saving tasks to storage and scheduling
+     * Handles the exit command by waiting for outstanding changes to be written to storage and scheduling
      * the application to exit shortly.
      *
-     * @param tasks   The TaskList containing tasks
      * @param storage The Storage for saving tasks
      * @return A farewell message indicating whether tasks were saved
      */
-    private static String handleExit(TaskList tasks, Storage storage) {
-        boolean isSaved = storage.saveTasks(tasks.getAllTasks());
+    private static String handleExit(Storage storage) {
+        boolean isSaved = storage.close();
         if (!isSaved) {
             return "Oops! I couldn't save your tasks. Something went wrong. Please try again.";
         }
@@ -424,21 +846,6 @@ public class Command {
         return "Byeee! I've successfully saved your tasks. See you next time!";
     }
 
-    /**
-     * Retrieves a task from the TaskList by parsing the index from a user command substring.
-     *
-     * @param input        The user command (e.g., "mark 2")
-     * @param tasks        The TaskList containing tasks
-     * @param prefixLength The length of the command prefix to strip away
-     * @return The Task at the parsed zero-based index
-     * @throws NumberFormatException     If the substring cannot be parsed as an integer
-     * @throws IndexOutOfBoundsException If the index is negative or out of range
-     */
-    private static Task getTaskFromInput(String input, TaskList tasks, int prefixLength) {
-        int index = getTaskIndex(input, prefixLength);
-        return tasks.getTask(index);
-    }
-
     /**
      * Parses and adjusts the index from user input (1-based) to zero-based.
      *
@@ -456,6 +863,55 @@ public class Command {
         return index;
     }
 
+    /**
+     * Lists every pair of events whose times overlap.
+     *
+     * @param tasks The TaskList that stores the user's tasks
+     * @return The overlapping pairs, or a message saying there are none
+     */
+    private static String handleConflicts(TaskList tasks) {
+        List<Task[]> conflicts = tasks.findConflicts();
+        if (conflicts.isEmpty()) {
+            return "None of your events overlap. Nice!";
+        }
+        StringBuilder message = new StringBuilder("Found " + conflicts.size() + " pair(s) of overlapping events:");
+        for (int i = 0; i < conflicts.size(); i++) {
+            message.append("\n").append(i + 1).append(". ").append(conflicts.get(i)[0].getTaskString())
+                    .append("\n   overlaps ").append(conflicts.get(i)[1].getTaskString());
+        }
+        return message.toString();
+    }
+
+    /**
+     * Undoes the changes made by the last command that changed the list.
+     *
+     * @param tasks The TaskList that stores the user's tasks
+     * @return A message saying what the list looks like now
+     */
+    private static String handleUndo(TaskList tasks) {
+        if (!tasks.isKeepingHistory()) {
+            return "Sorry, undo isn't available in this mode.";
+        } else if (!tasks.undo()) {
+            return "There's nothing to undo.";
+        }
+        return "Undone! Now you have " + tasks.getSize() + " tasks in the list.";
+    }
+
+    /**
+     * Redoes the changes undone by the last undo.
+     *
+     * @param tasks The TaskList that stores the user's tasks
+     * @return A message saying what the list looks like now
+     */
+    private static String handleRedo(TaskList tasks) {
+        if (!tasks.isKeepingHistory()) {
+            return "Sorry, redo isn't available in this mode.";
+        } else if (!tasks.redo()) {
+            return "There's nothing to redo.";
+        }
+        return "Redone! Now you have " + tasks.getSize() + " tasks in the list.";
+    }
+
     /**
      * Constructs a message confirming that a new task has been added and displaying
      * the current number of tasks in the list.
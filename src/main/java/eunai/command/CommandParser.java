@@ -10,7 +10,8 @@ public class CommandParser {
      * Represents the list of supported commands in the application.
      */
     public enum Command {
-        TODO, DEADLINE, EVENT, LIST, MARK, UNMARK, DELETE, FIND, BYE, INVALID
+        TODO, DEADLINE, EVENT, LIST, MARK, UNMARK, DELETE, DELETE_BEFORE, FIND, ARCHIVE, DUE_BEFORE, ON, CONFLICTS, BYE,
+        UNDO, REDO, INVALID
     }
 
     /**
@@ -31,16 +32,30 @@ public class CommandParser {
             return Command.DEADLINE;
         } else if (input.startsWith("event")) {
             return Command.EVENT;
-        } else if (input.equals("list")) {
+        } else if (input.equals("list") || input.startsWith("list ")) {
             return Command.LIST;
         } else if (input.startsWith("mark")) {
             return Command.MARK;
         } else if (input.startsWith("unmark")) {
             return Command.UNMARK;
+        } else if (input.startsWith("delete before")) {
+            return Command.DELETE_BEFORE;
         } else if (input.startsWith("delete")) {
             return Command.DELETE;
         } else if (input.startsWith("find")) {
             return Command.FIND;
+        } else if (input.startsWith("due before")) {
+            return Command.DUE_BEFORE;
+        } else if (input.equals("on") || input.startsWith("on ")) {
+            return Command.ON;
+        } else if (input.equals("archive")) {
+            return Command.ARCHIVE;
+        } else if (input.equals("conflicts")) {
+            return Command.CONFLICTS;
+        } else if (input.equals("undo")) {
+            return Command.UNDO;
+        } else if (input.equals("redo")) {
+            return Command.REDO;
         } else if (input.equals("bye")) {
             return Command.BYE;
         } else {
@@ -0,0 +1,138 @@
+package eunai.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Represents a set of words that can be searched for the words within a given edit distance of a term.
+ * <p>
+ * In a BK-tree, every child of a word is filed under its Levenshtein distance to that word. Since edit
+ * distance obeys the triangle inequality, a word within distance k of the term can only be below a
+ * child whose distance differs by at most k from the term's distance to the parent, so a search with
+ * a small k only visits a small part of the tree instead of every word.
+ * </p>
+ */
+public class BkTree {
+    private Node root;
+    private int size;
+
+    /**
+     * Adds a word, unless it is already in the tree.
+     * @param word The word to add.
+     */
+    public void add(String word) {
+        if (root == null) {
+            root = new Node(word);
+            size++;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(word, node.word);
+            if (distance == 0) {
+                return;
+            }
+            Node child = node.getChild(distance);
+            if (child == null) {
+                node.addChild(distance, new Node(word));
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Returns every word within {@code maxDistance} edits of {@code term}.
+     * @param term The term to search for.
+     * @param maxDistance The largest number of insertions, deletions and substitutions allowed.
+     * @return The matching words, in no particular order.
+     */
+    public List<String> findWithin(String term, int maxDistance) {
+        List<String> found = new ArrayList<>();
+        if (root == null) {
+            return found;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(term, node.word);
+            if (distance <= maxDistance) {
+                found.add(node.word);
+            }
+            for (int i = 0; i < node.childCount; i++) {
+                if (Math.abs(node.childDistances[i] - distance) <= maxDistance) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+        return found;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the Levenshtein distance between two words, keeping only two rows of the table.
+     */
+    static int distance(String a, String b) {
+        if (a.length() < b.length()) {
+            return distance(b, a);
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Represents a word and its children, kept in small arrays since most words have only a few.
+     */
+    private static final class Node {
+        private final String word;
+        private int[] childDistances = new int[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+
+        Node(String word) {
+            this.word = word;
+        }
+
+        Node getChild(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (childDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node child) {
+            if (childCount == children.length) {
+                int capacity = Math.max(2, childCount * 2);
+                childDistances = Arrays.copyOf(childDistances, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            childDistances[childCount] = distance;
+            children[childCount++] = child;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package eunai.index;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Represents an index of tasks ordered by date, for answering "before" and "between" queries
+ * without looking at tasks outside the requested range.
+ * <p>
+ * Tasks are identified by sequence numbers. Each date keeps the sequence numbers of the tasks that
+ * fall on it in ascending order, so tasks with the same date come out in list order.
+ * </p>
+ */
+public class DateIndex {
+    private final TreeMap<LocalDateTime, IntList> byDate = new TreeMap<>();
+    private int size;
+
+    /**
+     * Indexes a task under a date.
+     * Tasks are usually added in ascending order of their sequence numbers, which takes O(1) time past the
+     * date lookup; a task that comes back with an older sequence number is moved into place.
+     * @param seq The sequence number of the task.
+     * @param date The date of the task.
+     */
+    public void add(int seq, LocalDateTime date) {
+        byDate.computeIfAbsent(date, key -> new IntList()).addSorted(seq);
+        size++;
+    }
+
+    /**
+     * Removes a task from the index.
+     * @param seq The sequence number of the task.
+     * @param date The date the task was indexed under.
+     */
+    public void remove(int seq, LocalDateTime date) {
+        IntList seqs = byDate.get(date);
+        if (seqs != null && seqs.removeSorted(seq)) {
+            size--;
+            if (seqs.isEmpty()) {
+                byDate.remove(date);
+            }
+        }
+    }
+
+    /**
+     * Returns the tasks dated from {@code from} (inclusive) up to {@code to} (exclusive), in date order.
+     * @param from The earliest date, or null for no lower bound.
+     * @param to The date after the latest date, or null for no upper bound.
+     * @return The sequence numbers of the tasks in the range.
+     */
+    public IntList findBetween(LocalDateTime from, LocalDateTime to) {
+        Map<LocalDateTime, IntList> range = byDate;
+        if (from != null && to != null) {
+            range = byDate.subMap(from, true, to, false);
+        } else if (from != null) {
+            range = byDate.tailMap(from, true);
+        } else if (to != null) {
+            range = byDate.headMap(to, false);
+        }
+        IntList found = new IntList();
+        for (IntList seqs : range.values()) {
+            for (int i = 0; i < seqs.size(); i++) {
+                found.add(seqs.get(i));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Estimates how many tasks {@link #findBetween} would return, in O(log n) time, by assuming the
+     * tasks are spread evenly between the earliest and the latest date.
+     * @param from The earliest date, or null for no lower bound.
+     * @param to The date after the latest date, or null for no upper bound.
+     * @return The estimated number of tasks in the range.
+     */
+    public int estimateBetween(LocalDateTime from, LocalDateTime to) {
+        if (byDate.isEmpty()) {
+            return 0;
+        }
+        long first = toEpochSecond(byDate.firstKey());
+        long last = toEpochSecond(byDate.lastKey());
+        long start = from == null ? first : Math.max(first, toEpochSecond(from));
+        // The latest date is in the index, so the range must reach one second past it to include it
+        long end = to == null ? last + 1 : Math.min(last + 1, toEpochSecond(to));
+        if (start >= end) {
+            return 0;
+        }
+        return (int) Math.ceil((double) size * (end - start) / (last + 1 - first));
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Returns the earliest tasks, in date order. Takes O(log n + limit) time.
+     * @param limit The largest number of tasks to return.
+     * @return The sequence numbers of up to {@code limit} tasks.
+     */
+    public IntList findFirst(int limit) {
+        IntList found = new IntList();
+        for (IntList seqs : byDate.values()) {
+            for (int i = 0; i < seqs.size() && found.size() < limit; i++) {
+                found.add(seqs.get(i));
+            }
+            if (found.size() == limit) {
+                break;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,152 @@
+package eunai.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Represents a growable list of {@code int}s, stored without boxing.
+ * Used for sequence numbers and posting lists, which are usually kept in ascending order.
+ */
+public class IntList {
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructs an empty {@code IntList}.
+     */
+    public IntList() {
+        this.values = new int[8];
+    }
+
+    /**
+     * Appends a value to the end of the list.
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Adds {@code value} at its place in a list in ascending order, unless it is already there.
+     * Takes O(1) time when {@code value} is larger than every value in the list, which is the usual case.
+     */
+    public void addSorted(int value) {
+        if (size == 0 || values[size - 1] < value) {
+            add(value);
+            return;
+        }
+        int index = indexOfSorted(value);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        add(0);
+        System.arraycopy(values, index, values, index + 1, size - index - 1);
+        values[index] = value;
+    }
+
+    /**
+     * Appends every value of {@code other}, in order.
+     */
+    public void addAll(IntList other) {
+        if (size + other.size > values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+        }
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Returns the value at {@code index}.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Removes and returns the value at {@code index}, moving the values after it up by one.
+     */
+    public int removeAt(int index) {
+        int removed = get(index);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes the values at every index in {@code indices} in a single pass, keeping the rest in order.
+     */
+    public void removeAll(BitSet indices) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!indices.get(i)) {
+                values[kept++] = values[i];
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * Removes {@code value} from a list in ascending order.
+     * @return true if the value was in the list.
+     */
+    public boolean removeSorted(int value) {
+        int index = indexOfSorted(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Returns the index of {@code value} in a list in ascending order, or a negative number if it is not there.
+     */
+    public int indexOfSorted(int value) {
+        return Arrays.binarySearch(values, 0, size, value);
+    }
+
+    /**
+     * Removes every value that is set in {@code removedValues}, keeping the rest in order, in one pass.
+     *
+     * @return Whether any value was removed.
+     */
+    public boolean removeValues(BitSet removedValues) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!removedValues.get(values[i])) {
+                values[kept++] = values[i];
+            }
+        }
+        boolean isChanged = kept < size;
+        size = kept;
+        return isChanged;
+    }
+
+    /**
+     * Sorts the values in ascending order.
+     */
+    public void sort() {
+        Arrays.sort(values, 0, size);
+    }
+
+    /**
+     * Removes every value.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,219 @@
+package eunai.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Represents a set of time intervals that can be searched for overlaps without checking every interval.
+ * <p>
+ * The intervals are kept in a binary search tree ordered by start time, balanced as a treap (each node
+ * also carries a random priority that the tree is kept heap-ordered on). Every node records the latest
+ * end time in its subtree, so a search can skip any subtree that ends before the interval being
+ * looked up. Finding the intervals overlapping a given one takes O(log n + k) time on average.
+ * </p>
+ * <p>
+ * Intervals are half-open: an interval that ends exactly when another starts does not overlap it.
+ * Each interval belongs to a task, identified by its sequence number.
+ * </p>
+ */
+public class IntervalTree {
+    private final Random random = new Random();
+    private Node root;
+    private int size;
+
+    /**
+     * Adds the interval of a task.
+     * @param seq The sequence number of the task.
+     * @param start The start of the interval, in epoch seconds.
+     * @param end The end of the interval, in epoch seconds.
+     */
+    public void add(int seq, long start, long end) {
+        root = insert(root, new Node(seq, start, end, random.nextInt()));
+        size++;
+    }
+
+    /**
+     * Removes the interval of a task.
+     * @param seq The sequence number of the task.
+     * @param start The start the interval was added with.
+     */
+    public void remove(int seq, long start) {
+        int sizeBefore = size;
+        root = delete(root, seq, start);
+        assert size < sizeBefore : "removed an interval that was not in the tree";
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the tasks whose intervals overlap {@code [start, end)}, in order of start time.
+     * @param start The start of the interval to look up, in epoch seconds.
+     * @param end The end of the interval to look up, in epoch seconds.
+     * @return The sequence numbers of the overlapping tasks.
+     */
+    public IntList findOverlapping(long start, long end) {
+        IntList found = new IntList();
+        collectOverlapping(root, start, end, found);
+        return found;
+    }
+
+    /**
+     * Returns every pair of overlapping intervals, each pair once, ordered by the start of the
+     * later-starting interval.
+     * <p>
+     * The intervals are swept in order of start time while a heap holds the ones still running, so this
+     * takes O(n log n + k) time for k pairs.
+     * </p>
+     * @return The pairs, as the sequence numbers of the earlier- and later-starting task.
+     */
+    public List<int[]> findOverlappingPairs() {
+        List<Node> inOrder = new ArrayList<>(size);
+        collectInOrder(root, inOrder);
+        List<int[]> pairs = new ArrayList<>();
+        PriorityQueue<Node> running = new PriorityQueue<>((a, b) -> Long.compare(a.end, b.end));
+        for (Node node : inOrder) {
+            while (!running.isEmpty() && running.peek().end <= node.start) {
+                running.poll();
+            }
+            if (node.start < node.end) {
+                for (Node other : running) {
+                    pairs.add(new int[] {other.seq, node.seq});
+                }
+                running.add(node);
+            }
+        }
+        return pairs;
+    }
+
+    private Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.compareTo(node.seq, node.start) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private Node delete(Node node, int seq, long start) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = node.compareTo(seq, start);
+        if (comparison > 0) {
+            node.left = delete(node.left, seq, start);
+        } else if (comparison < 0) {
+            node.right = delete(node.right, seq, start);
+        } else if (node.left == null || node.right == null) {
+            size--;
+            return node.left == null ? node.right : node.left;
+        } else {
+            // Rotate the node down until it has at most one child
+            if (node.left.priority > node.right.priority) {
+                node = rotateRight(node);
+                node.right = delete(node.right, seq, start);
+            } else {
+                node = rotateLeft(node);
+                node.left = delete(node.left, seq, start);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private void collectOverlapping(Node node, long start, long end, IntList found) {
+        if (node == null || node.maxEnd <= start) {
+            // Nothing in this subtree ends after the interval starts
+            return;
+        }
+        collectOverlapping(node.left, start, end, found);
+        if (node.start >= end) {
+            // This node and everything to its right start too late
+            return;
+        }
+        if (node.end > start) {
+            found.add(node.seq);
+        }
+        collectOverlapping(node.right, start, end, found);
+    }
+
+    private void collectInOrder(Node node, List<Node> nodes) {
+        if (node == null) {
+            return;
+        }
+        collectInOrder(node.left, nodes);
+        nodes.add(node);
+        collectInOrder(node.right, nodes);
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    /**
+     * Represents one interval, ordered by start time and then by sequence number.
+     */
+    private static class Node {
+        private final int seq;
+        private final long start;
+        private final long end;
+        private final int priority;
+        private long maxEnd;
+        private Node left;
+        private Node right;
+
+        Node(int seq, long start, long end, int priority) {
+            this.seq = seq;
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+
+        /**
+         * Compares this node's position in the tree with that of the interval of {@code otherSeq}
+         * starting at {@code otherStart}.
+         */
+        int compareTo(int otherSeq, long otherStart) {
+            int comparison = Long.compare(start, otherStart);
+            return comparison != 0 ? comparison : Integer.compare(seq, otherSeq);
+        }
+
+        void update() {
+            maxEnd = end;
+            if (left != null) {
+                maxEnd = Math.max(maxEnd, left.maxEnd);
+            }
+            if (right != null) {
+                maxEnd = Math.max(maxEnd, right.maxEnd);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package eunai.index;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Represents an immutable list where every change returns a new list that shares most of its structure
+ * with the old one.
+ * <p>
+ * The items are kept in an AVL tree ordered by position, where each node records the size of its
+ * subtree. A change copies only the O(log n) nodes on the path to the changed position, so getting,
+ * replacing, appending and removing an item all take O(log n) time and space, and keeping an old
+ * version around costs nothing more than a reference to it.
+ * </p>
+ *
+ * @param <T> The type of the items.
+ */
+public final class PersistentList<T> {
+    private static final PersistentList<?> EMPTY = new PersistentList<>(null);
+
+    private final Node<T> root;
+
+    private PersistentList(Node<T> root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the empty list.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> empty() {
+        return (PersistentList<T>) EMPTY;
+    }
+
+    /**
+     * Returns a list holding the given items, in order. Takes O(n) time.
+     */
+    public static <T> PersistentList<T> of(List<? extends T> items) {
+        return new PersistentList<>(build(items, 0, items.size()));
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns the item at {@code index}.
+     */
+    public T get(int index) {
+        checkIndex(index, size());
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    /**
+     * Returns a list with {@code value} in place of the item at {@code index}.
+     */
+    public PersistentList<T> set(int index, T value) {
+        checkIndex(index, size());
+        return new PersistentList<>(set(root, index, value));
+    }
+
+    /**
+     * Returns a list with {@code value} added at the end.
+     */
+    public PersistentList<T> add(T value) {
+        return new PersistentList<>(insert(root, size(), value));
+    }
+
+    /**
+     * Returns a list without the item at {@code index}.
+     */
+    public PersistentList<T> remove(int index) {
+        checkIndex(index, size());
+        return new PersistentList<>(remove(root, index));
+    }
+
+    /**
+     * Returns a read-only view of this list. Iterating over it takes O(n) time in total.
+     */
+    public List<T> asList() {
+        return new ListView();
+    }
+
+    private static <T> Node<T> build(List<? extends T> items, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node<>(items.get(middle), build(items, from, middle), build(items, middle + 1, to));
+    }
+
+    private static <T> Node<T> set(Node<T> node, int index, T value) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return new Node<>(node.value, set(node.left, index, value), node.right);
+        } else if (index > leftSize) {
+            return new Node<>(node.value, node.left, set(node.right, index - leftSize - 1, value));
+        }
+        return new Node<>(value, node.left, node.right);
+    }
+
+    private static <T> Node<T> insert(Node<T> node, int index, T value) {
+        if (node == null) {
+            return new Node<>(value, null, null);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            return balance(node.value, insert(node.left, index, value), node.right);
+        }
+        return balance(node.value, node.left, insert(node.right, index - leftSize - 1, value));
+    }
+
+    private static <T> Node<T> remove(Node<T> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return balance(node.value, remove(node.left, index), node.right);
+        } else if (index > leftSize) {
+            return balance(node.value, node.left, remove(node.right, index - leftSize - 1));
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        }
+        // Replace the removed item with the first item of the right subtree
+        return balance(first(node.right), node.left, remove(node.right, 0));
+    }
+
+    private static <T> T first(Node<T> node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.value;
+    }
+
+    /**
+     * Returns a node holding {@code value} over the two subtrees, rotating if their heights differ by more
+     * than one. The subtrees are themselves balanced and differ in height by at most two.
+     */
+    private static <T> Node<T> balance(T value, Node<T> left, Node<T> right) {
+        if (height(left) > height(right) + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.value, left.left, new Node<>(value, left.right, right));
+            }
+            return new Node<>(left.right.value, new Node<>(left.value, left.left, left.right.left),
+                    new Node<>(value, left.right.right, right));
+        } else if (height(right) > height(left) + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.value, new Node<>(value, left, right.left), right.right);
+            }
+            return new Node<>(right.left.value, new Node<>(value, left, right.left.left),
+                    new Node<>(right.value, right.left.right, right.right));
+        }
+        return new Node<>(value, left, right);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Represents one item and the subtrees before and after it. Never changed once built.
+     */
+    private static final class Node<T> {
+        private final T value;
+        private final Node<T> left;
+        private final Node<T> right;
+        private final int size;
+        private final int height;
+
+        Node(T value, Node<T> left, Node<T> right) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    /**
+     * Represents this list as a read-only {@link List}.
+     */
+    private final class ListView extends AbstractList<T> implements RandomAccess {
+        @Override
+        public T get(int index) {
+            return PersistentList.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return PersistentList.this.size();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            // Walks the tree in order with a stack, instead of descending from the root for every item
+            Deque<Node<T>> path = new ArrayDeque<>();
+            for (Node<T> node = root; node != null; node = node.left) {
+                path.push(node);
+            }
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return !path.isEmpty();
+                }
+
+                @Override
+                public T next() {
+                    if (path.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    Node<T> node = path.pop();
+                    for (Node<T> next = node.right; next != null; next = next.left) {
+                        path.push(next);
+                    }
+                    return node.value;
+                }
+            };
+        }
+    }
+}
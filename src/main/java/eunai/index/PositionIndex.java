@@ -0,0 +1,137 @@
+package eunai.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Maps the positions of the items still in a list to the slots they are stored in, when removed items
+ * leave their slots empty instead of moving everything after them up.
+ * <p>
+ * A Fenwick tree counts the live slots, so finding the slot at a position, finding the position of a
+ * slot, and removing or reviving a slot all take O(log n) time. Once enough slots are empty, the owner
+ * moves the live items together and calls {@link #reset(int)}.
+ * </p>
+ */
+public class PositionIndex {
+    // tree[i] is the number of live slots in (i - lowbit(i), i], counting slots from 1
+    private int[] tree;
+    private final BitSet removed = new BitSet();
+    private int slotCount;
+    private int liveCount;
+
+    /**
+     * Constructs a {@code PositionIndex} over {@code slotCount} live slots.
+     */
+    public PositionIndex(int slotCount) {
+        this.tree = new int[8];
+        reset(slotCount);
+    }
+
+    /**
+     * Forgets every removed slot, leaving {@code slotCount} live slots. Takes O(n) time.
+     */
+    public void reset(int slotCount) {
+        tree = new int[Math.max(tree.length, slotCount + 1)];
+        for (int i = 1; i <= slotCount; i++) {
+            tree[i] = Integer.lowestOneBit(i);
+        }
+        removed.clear();
+        this.slotCount = slotCount;
+        this.liveCount = slotCount;
+    }
+
+    /**
+     * Adds a live slot after the last one.
+     * @return The new slot.
+     */
+    public int append() {
+        int i = slotCount + 1;
+        if (i == tree.length) {
+            tree = Arrays.copyOf(tree, tree.length * 2);
+        }
+        tree[i] = 1 + countBefore(i - 1) - countBefore(i - Integer.lowestOneBit(i));
+        slotCount++;
+        liveCount++;
+        return i - 1;
+    }
+
+    /**
+     * Marks a live slot as empty.
+     */
+    public void remove(int slot) {
+        assert isLive(slot) : "slot " + slot + " is already empty";
+        removed.set(slot);
+        for (int i = slot + 1; i <= slotCount; i += Integer.lowestOneBit(i)) {
+            tree[i]--;
+        }
+        liveCount--;
+    }
+
+    /**
+     * Makes an empty slot live again, as when a removed item is put back where it was.
+     */
+    public void revive(int slot) {
+        assert slot >= 0 && slot < slotCount && removed.get(slot) : "slot " + slot + " is not empty";
+        removed.clear(slot);
+        for (int i = slot + 1; i <= slotCount; i += Integer.lowestOneBit(i)) {
+            tree[i]++;
+        }
+        liveCount++;
+    }
+
+    public boolean isLive(int slot) {
+        return slot >= 0 && slot < slotCount && !removed.get(slot);
+    }
+
+    /**
+     * Returns the slot holding the item at {@code position}.
+     */
+    public int slotOf(int position) {
+        if (position < 0 || position >= liveCount) {
+            throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + liveCount);
+        }
+        // Descend the tree for the last slot with at most `position` live slots up to it
+        int i = 0;
+        int remaining = position;
+        for (int step = Integer.highestOneBit(slotCount); step > 0; step >>= 1) {
+            if (i + step <= slotCount && tree[i + step] <= remaining) {
+                i += step;
+                remaining -= tree[i];
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Returns the position of the item in a live slot.
+     */
+    public int positionOf(int slot) {
+        return countBefore(slot);
+    }
+
+    /**
+     * Returns the slots that have been removed since the last reset.
+     */
+    public BitSet getRemovedSlots() {
+        return (BitSet) removed.clone();
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * Returns the number of live slots among the first {@code count} slots.
+     */
+    private int countBefore(int count) {
+        int live = 0;
+        for (int i = count; i > 0; i -= Integer.lowestOneBit(i)) {
+            live += tree[i];
+        }
+        return live;
+    }
+}
@@ -0,0 +1,252 @@
+package eunai.index;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents an inverted index from the words in task descriptions to the tasks that contain them.
+ * <p>
+ * Tasks are identified by sequence numbers that never change while the task is in the list, so
+ * deleting a task does not renumber the others. Descriptions are split into tokens, lowercased runs of
+ * letters and digits, and each token keeps a posting list of the sequence numbers of the tasks whose
+ * description contains it. Each description is lowercased and split once, when its task is added,
+ * instead of on every search.
+ * </p>
+ * <p>
+ * Keywords of three characters or more are looked up in a {@link TrigramIndex}, so this index only
+ * answers keywords of one or two characters, which may be anywhere inside a word. The posting list of
+ * such a keyword is built the first time it is searched for, from the tokens that contain it, and is
+ * kept up to date from then on. Only the keywords actually searched for take memory, instead of every
+ * substring of every token. Building one is safe while other threads search, as long as no thread
+ * changes the index at the same time.
+ * </p>
+ * <p>
+ * Every token is also kept in a {@link BkTree}, so tokens close to a mistyped word can be found
+ * without comparing the word against the whole dictionary.
+ * </p>
+ */
+public class TokenIndex {
+    /** The longest keyword token this index looks up; longer ones are looked up in a trigram index. */
+    public static final int MAX_INFIX_LENGTH = 2;
+
+    private final Map<String, IntList> postings = new HashMap<>();
+    // The substrings of at most MAX_INFIX_LENGTH characters of the tokens that have been searched for
+    private final Map<String, IntList> infixPostings = new ConcurrentHashMap<>();
+    // Tokens are never removed from the tree; a token with no posting list left is skipped instead
+    private final BkTree dictionary = new BkTree();
+
+    /**
+     * Indexes the description of a task.
+     * Adding tasks in ascending order of their sequence numbers takes O(1) time per word; a task that comes
+     * back with an older sequence number, as after an undo, is moved into place in each posting list.
+     * @param seq The sequence number of the task.
+     * @param description The description of the task.
+     */
+    public void add(int seq, String description) {
+        List<String> tokens = tokenize(description);
+        for (String token : tokens) {
+            addToPosting(postings.computeIfAbsent(token, key -> {
+                dictionary.add(key);
+                return new IntList();
+            }), seq);
+        }
+        if (infixPostings.isEmpty()) {
+            return;
+        }
+        for (String infix : infixesOf(tokens)) {
+            IntList posting = infixPostings.get(infix);
+            if (posting != null) {
+                addToPosting(posting, seq);
+            }
+        }
+    }
+
+    private static void addToPosting(IntList posting, int seq) {
+        // A word repeated within one description is only recorded once
+        posting.addSorted(seq);
+    }
+
+    /**
+     * Removes a task from the index.
+     * @param seq The sequence number of the task.
+     * @param description The description the task was indexed with.
+     */
+    public void remove(int seq, String description) {
+        List<String> tokens = tokenize(description);
+        for (String token : tokens) {
+            removeFromPosting(postings, token, seq);
+        }
+        if (!infixPostings.isEmpty()) {
+            for (String infix : infixesOf(tokens)) {
+                removeFromPosting(infixPostings, infix, seq);
+            }
+        }
+    }
+
+    /**
+     * Removes many tasks from the index at once. Each posting list that holds any of them is filtered
+     * once, instead of once for every task in it.
+     * @param seqs The sequence numbers of the tasks.
+     * @param descriptions The descriptions the tasks were indexed with.
+     */
+    public void removeAll(BitSet seqs, List<String> descriptions) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String description : descriptions) {
+            tokens.addAll(tokenize(description));
+        }
+        for (String token : tokens) {
+            removeFromPosting(postings, token, seqs);
+        }
+        if (!infixPostings.isEmpty()) {
+            for (String infix : infixesOf(tokens)) {
+                removeFromPosting(infixPostings, infix, seqs);
+            }
+        }
+    }
+
+    private static void removeFromPosting(Map<String, IntList> postings, String key, BitSet seqs) {
+        IntList posting = postings.get(key);
+        if (posting != null && posting.removeValues(seqs) && posting.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    private static void removeFromPosting(Map<String, IntList> postings, String key, int seq) {
+        IntList posting = postings.get(key);
+        if (posting != null && posting.removeSorted(seq) && posting.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    /**
+     * Returns the distinct substrings of at most {@value #MAX_INFIX_LENGTH} characters of the tokens.
+     */
+    private static Set<String> infixesOf(Collection<String> tokens) {
+        Set<String> infixes = new LinkedHashSet<>();
+        for (String token : tokens) {
+            for (int start = 0; start < token.length(); start++) {
+                for (int end = start + 1; end <= Math.min(token.length(), start + MAX_INFIX_LENGTH); end++) {
+                    infixes.add(token.substring(start, end));
+                }
+            }
+        }
+        return infixes;
+    }
+
+    /**
+     * Returns the tasks that might contain {@code keyword}, a keyword shorter than
+     * {@link TrigramIndex#MIN_KEYWORD_LENGTH} characters, ignoring case.
+     * Each of its tokens matches any word containing it. When the keyword is a single token, every
+     * included task does contain it; otherwise the candidates must still be checked.
+     * @param keyword The keyword to search for.
+     * @return The sequence numbers of the candidate tasks, or null if the keyword has no letters or
+     *     digits to look up, in which case every task is a candidate.
+     * @throws IllegalArgumentException If a token of the keyword is longer than {@value #MAX_INFIX_LENGTH}
+     *     characters.
+     */
+    public BitSet findCandidates(String keyword) {
+        List<String> keywordTokens = tokenize(keyword);
+        if (keywordTokens.isEmpty()) {
+            return null;
+        }
+        BitSet candidates = null;
+        for (String keywordToken : keywordTokens) {
+            if (keywordToken.length() > MAX_INFIX_LENGTH) {
+                throw new IllegalArgumentException("Look up longer keywords in a trigram index: " + keyword);
+            }
+            BitSet matches = new BitSet();
+            addPosting(matches, infixPostings.computeIfAbsent(keywordToken, this::buildInfixPosting));
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.and(matches);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Collects the tasks with a token that contains {@code infix}, by walking the whole vocabulary once.
+     */
+    private IntList buildInfixPosting(String infix) {
+        BitSet seqs = new BitSet();
+        for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+            if (entry.getKey().contains(infix)) {
+                addPosting(seqs, entry.getValue());
+            }
+        }
+        IntList posting = new IntList();
+        for (int seq = seqs.nextSetBit(0); seq >= 0; seq = seqs.nextSetBit(seq + 1)) {
+            posting.add(seq);
+        }
+        return posting;
+    }
+
+    /**
+     * Returns the tasks with a word within {@code maxDistance} edits of every word of {@code term},
+     * ignoring case. Unlike {@link #findCandidates(String)}, whole words are compared, so every returned
+     * task matches.
+     * @param term The words to search for.
+     * @param maxDistance The largest number of insertions, deletions and substitutions allowed per word.
+     * @return The sequence numbers of the matching tasks, or null if the term has no letters or digits.
+     */
+    public BitSet findFuzzy(String term, int maxDistance) {
+        List<String> termTokens = tokenize(term);
+        if (termTokens.isEmpty()) {
+            return null;
+        }
+        BitSet found = null;
+        for (String termToken : termTokens) {
+            BitSet matches = new BitSet();
+            for (String token : dictionary.findWithin(termToken, maxDistance)) {
+                addPosting(matches, postings.get(token));
+            }
+            if (found == null) {
+                found = matches;
+            } else {
+                found.and(matches);
+            }
+        }
+        return found;
+    }
+
+    private static void addPosting(BitSet matches, IntList posting) {
+        for (int i = 0; posting != null && i < posting.size(); i++) {
+            matches.set(posting.get(i));
+        }
+    }
+
+    /**
+     * Returns whether {@code keyword} is a single token, so that {@link #findCandidates(String)}
+     * returns exactly the tasks containing it.
+     */
+    public static boolean isSingleToken(String keyword) {
+        List<String> tokens = tokenize(keyword);
+        return tokens.size() == 1 && tokens.get(0).length() == keyword.length();
+    }
+
+    /**
+     * Splits text into lowercased runs of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
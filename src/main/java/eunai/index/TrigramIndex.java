@@ -0,0 +1,146 @@
+package eunai.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents an index from every three-character substring (trigram) of the lowercased task
+ * descriptions to the tasks that contain it.
+ * <p>
+ * Any description that contains a keyword also contains every trigram of the keyword, so intersecting
+ * the posting lists of the keyword's trigrams gives a small set of candidates that includes every
+ * match. Only the candidates then need to be checked with {@link String#contains}, which keeps the
+ * exact substring semantics of a full scan. Keywords shorter than three characters have no trigrams
+ * and cannot be looked up.
+ * </p>
+ * <p>
+ * Tasks are identified by sequence numbers, and posting lists are kept in ascending order.
+ * </p>
+ */
+public class TrigramIndex {
+    /** The shortest keyword that can be looked up. */
+    public static final int MIN_KEYWORD_LENGTH = 3;
+
+    private final Map<Long, IntList> postings = new HashMap<>();
+
+    /**
+     * Indexes the description of a task.
+     * Adding tasks in ascending order of their sequence numbers takes O(1) time per trigram; a task that
+     * comes back with an older sequence number, as after an undo, is moved into place in each posting list.
+     * @param seq The sequence number of the task.
+     * @param description The description of the task.
+     */
+    public void add(int seq, String description) {
+        for (long trigram : trigramsOf(description.toLowerCase())) {
+            postings.computeIfAbsent(trigram, key -> new IntList()).addSorted(seq);
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     * @param seq The sequence number of the task.
+     * @param description The description the task was indexed with.
+     */
+    public void remove(int seq, String description) {
+        for (long trigram : trigramsOf(description.toLowerCase())) {
+            IntList posting = postings.get(trigram);
+            if (posting != null && posting.removeSorted(seq) && posting.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Removes many tasks from the index at once. Each posting list that holds any of them is filtered
+     * once, instead of once for every task in it.
+     * @param seqs The sequence numbers of the tasks.
+     * @param descriptions The descriptions the tasks were indexed with.
+     */
+    public void removeAll(BitSet seqs, List<String> descriptions) {
+        Set<Long> trigrams = new HashSet<>();
+        for (String description : descriptions) {
+            trigrams.addAll(trigramsOf(description.toLowerCase()));
+        }
+        for (long trigram : trigrams) {
+            IntList posting = postings.get(trigram);
+            if (posting != null && posting.removeValues(seqs) && posting.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Returns the tasks whose description might contain {@code lowerKeyword}. Every task that does
+     * contain it is included, but some included tasks may not, and must still be checked.
+     * @param lowerKeyword The lowercased keyword to search for.
+     * @return The sequence numbers of the candidates in ascending order, or null if the keyword is
+     *     too short to look up.
+     */
+    public int[] findCandidates(String lowerKeyword) {
+        if (lowerKeyword.length() < MIN_KEYWORD_LENGTH) {
+            return null;
+        }
+        Set<Long> trigrams = trigramsOf(lowerKeyword);
+        IntList[] lists = new IntList[trigrams.size()];
+        int count = 0;
+        for (long trigram : trigrams) {
+            IntList posting = postings.get(trigram);
+            if (posting == null) {
+                return new int[0];
+            }
+            lists[count++] = posting;
+        }
+        // Starting from the shortest list keeps every step as small as possible
+        Arrays.sort(lists, Comparator.comparingInt(IntList::size));
+
+        int[] candidates = new int[lists[0].size()];
+        int candidateCount = 0;
+        for (int i = 0; i < lists[0].size(); i++) {
+            int seq = lists[0].get(i);
+            boolean isInAll = true;
+            for (int j = 1; j < lists.length && isInAll; j++) {
+                isInAll = lists[j].indexOfSorted(seq) >= 0;
+            }
+            if (isInAll) {
+                candidates[candidateCount++] = seq;
+            }
+        }
+        return Arrays.copyOf(candidates, candidateCount);
+    }
+
+    /**
+     * Returns an upper bound on the number of candidates {@link #findCandidates(String)} would return,
+     * without intersecting any posting lists: the length of the shortest one.
+     * @param lowerKeyword The lowercased keyword to search for.
+     * @return The bound, or -1 if the keyword is too short to look up.
+     */
+    public int estimateCandidates(String lowerKeyword) {
+        if (lowerKeyword.length() < MIN_KEYWORD_LENGTH) {
+            return -1;
+        }
+        int shortest = Integer.MAX_VALUE;
+        for (long trigram : trigramsOf(lowerKeyword)) {
+            IntList posting = postings.get(trigram);
+            shortest = Math.min(shortest, posting == null ? 0 : posting.size());
+        }
+        return shortest;
+    }
+
+    /**
+     * Returns the distinct trigrams of {@code text}, each packed into a {@code long}.
+     */
+    private static Set<Long> trigramsOf(String text) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + MIN_KEYWORD_LENGTH <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,117 @@
+package eunai.query;
+
+import java.time.LocalDateTime;
+import java.util.function.Predicate;
+
+import eunai.task.Deadline;
+import eunai.task.Event;
+import eunai.task.Task;
+import eunai.task.TaskType;
+
+/**
+ * Represents one condition of a {@link Query}, such as {@code type:deadline} or {@code "report"}.
+ * Each kind of clause is its own class, so a planner can tell which index could answer it.
+ */
+public abstract class Clause implements Predicate<Task> {
+
+    /**
+     * Represents the condition that a task is of a given type.
+     */
+    public static final class TypeIs extends Clause {
+        private final TaskType type;
+
+        TypeIs(TaskType type) {
+            this.type = type;
+        }
+
+        public TaskType getType() {
+            return type;
+        }
+
+        @Override
+        public boolean test(Task task) {
+            return task.getTaskType() == type;
+        }
+    }
+
+    /**
+     * Represents the condition that a task is, or is not, done.
+     */
+    public static final class DoneIs extends Clause {
+        private final boolean isDone;
+
+        DoneIs(boolean isDone) {
+            this.isDone = isDone;
+        }
+
+        public boolean isDone() {
+            return isDone;
+        }
+
+        @Override
+        public boolean test(Task task) {
+            return task.taskStatus() == isDone;
+        }
+    }
+
+    /**
+     * Represents the condition that a task is due from one date (inclusive) up to another (exclusive).
+     * Deadlines are due on their due date, and events when they end, so to-dos never match.
+     */
+    public static final class DueBetween extends Clause {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+
+        DueBetween(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Returns the earliest date, or null for no lower bound.
+         */
+        public LocalDateTime getFrom() {
+            return from;
+        }
+
+        /**
+         * Returns the date after the latest date, or null for no upper bound.
+         */
+        public LocalDateTime getTo() {
+            return to;
+        }
+
+        @Override
+        public boolean test(Task task) {
+            LocalDateTime dueDate;
+            if (task instanceof Deadline) {
+                dueDate = ((Deadline) task).getByDate();
+            } else if (task instanceof Event) {
+                dueDate = ((Event) task).getEndDate();
+            } else {
+                return false;
+            }
+            return (from == null || !dueDate.isBefore(from)) && (to == null || dueDate.isBefore(to));
+        }
+    }
+
+    /**
+     * Represents the condition that a task's description contains some text, ignoring case.
+     */
+    public static final class Contains extends Clause {
+        private final String lowerText;
+
+        Contains(String text) {
+            this.lowerText = text.toLowerCase();
+        }
+
+        public String getLowerText() {
+            return lowerText;
+        }
+
+        @Override
+        public boolean test(Task task) {
+            return task.getDescription().toLowerCase().contains(lowerText);
+        }
+    }
+}
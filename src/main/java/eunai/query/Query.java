@@ -0,0 +1,161 @@
+package eunai.query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import eunai.DateParser;
+import eunai.task.Task;
+import eunai.task.TaskType;
+
+/**
+ * Represents a structured search such as {@code type:deadline done:false before:2025-03-01 "report"},
+ * which matches the tasks that satisfy every one of its clauses.
+ * <p>
+ * The supported clauses are {@code type:todo|deadline|event}, {@code done:true|false}, and
+ * {@code before:}, {@code after:} and {@code on:} followed by a date, which compare when a task is due;
+ * {@code after:} includes tasks due at exactly that time.
+ * Any other word, or text in double quotes, must appear in the description. A value with spaces, such
+ * as a date with a time, can be put in double quotes: {@code before:"2025-03-01 18:00"}.
+ * </p>
+ */
+public class Query implements Predicate<Task> {
+    private static final Set<String> FIELDS = Set.of("type", "done", "before", "after", "on");
+
+    private final List<Clause> clauses;
+
+    private Query(List<Clause> clauses) {
+        this.clauses = clauses;
+    }
+
+    /**
+     * Returns whether {@code input} uses the query syntax, that is, whether it has a clause with a
+     * field name or text in double quotes. Anything else is searched for as a plain keyword.
+     *
+     * @param input The search input.
+     * @return Whether to parse the input as a query.
+     */
+    public static boolean isQuery(String input) {
+        if (input.contains("\"")) {
+            return true;
+        }
+        for (String term : input.trim().split("\\s+")) {
+            int colon = term.indexOf(':');
+            if (colon > 0 && FIELDS.contains(term.substring(0, colon).toLowerCase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param input The query, e.g. {@code type:deadline done:false "report"}.
+     * @return The parsed query.
+     * @throws IllegalArgumentException If a clause is not valid.
+     */
+    public static Query parse(String input) {
+        List<Clause> clauses = new ArrayList<>();
+        for (String term : splitTerms(input)) {
+            clauses.add(parseClause(term));
+        }
+        if (clauses.isEmpty()) {
+            throw new IllegalArgumentException("Oops! The query is empty.");
+        }
+        return new Query(clauses);
+    }
+
+    public List<Clause> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * Returns whether {@code task} satisfies every clause.
+     */
+    @Override
+    public boolean test(Task task) {
+        for (Clause clause : clauses) {
+            if (!clause.test(task)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits the input at spaces that are not inside double quotes, and removes the quotes.
+     * A term that was quoted as a whole starts with a double quote, so it is never taken for a field.
+     */
+    private static List<String> splitTerms(String input) {
+        List<String> terms = new ArrayList<>();
+        StringBuilder term = new StringBuilder();
+        boolean isQuoted = false;
+        boolean hasTerm = false;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '"') {
+                isQuoted = !isQuoted;
+                // Kept only at the start of a term, to mark it as text
+                if (!hasTerm) {
+                    term.append(c);
+                }
+                hasTerm = true;
+            } else if (Character.isWhitespace(c) && !isQuoted) {
+                if (hasTerm) {
+                    terms.add(term.toString());
+                    term.setLength(0);
+                    hasTerm = false;
+                }
+            } else {
+                term.append(c);
+                hasTerm = true;
+            }
+        }
+        if (isQuoted) {
+            throw new IllegalArgumentException("Oops! A double quote in the query is never closed.");
+        }
+        if (hasTerm) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    private static Clause parseClause(String term) {
+        if (term.startsWith("\"")) {
+            String text = term.substring(1);
+            if (text.isEmpty()) {
+                throw new IllegalArgumentException("Oops! The query has empty quotes.");
+            }
+            return new Clause.Contains(text);
+        }
+        int colon = term.indexOf(':');
+        String field = colon > 0 ? term.substring(0, colon).toLowerCase() : "";
+        if (!FIELDS.contains(field)) {
+            return new Clause.Contains(term);
+        }
+        String value = term.substring(colon + 1);
+        switch (field) {
+        case "type":
+            try {
+                return new Clause.TypeIs(TaskType.valueOf(value.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Oops! The type must be todo, deadline or event.");
+            }
+        case "done":
+            if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException("Oops! 'done:' must be followed by true or false.");
+            }
+            return new Clause.DoneIs(Boolean.parseBoolean(value));
+        case "before":
+            return new Clause.DueBetween(null, DateParser.parseDate(value));
+        case "after":
+            return new Clause.DueBetween(DateParser.parseDate(value), null);
+        default:
+            LocalDateTime day = DateParser.parseDate(value).toLocalDate().atStartOfDay();
+            return new Clause.DueBetween(day, day.plusDays(1));
+        }
+    }
+}
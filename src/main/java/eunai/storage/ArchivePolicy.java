@@ -0,0 +1,37 @@
+package eunai.storage;
+
+/**
+ * Represents when completed tasks are moved to the archive automatically at startup.
+ * Completed tasks are archived once there are at least {@code minDoneTasks} of them and they make up
+ * at least {@code minDoneRatio} of the list.
+ */
+public class ArchivePolicy {
+    /** Archives once at least 500 tasks are done and they make up half of the list. */
+    public static final ArchivePolicy DEFAULT = new ArchivePolicy(500, 0.5);
+    /** Never archives automatically. */
+    public static final ArchivePolicy NEVER = new ArchivePolicy(Integer.MAX_VALUE, 1.0);
+
+    private final int minDoneTasks;
+    private final double minDoneRatio;
+
+    /**
+     * Constructs an {@code ArchivePolicy}.
+     * @param minDoneTasks The number of completed tasks needed before archiving.
+     * @param minDoneRatio The fraction of the list, between 0 and 1, that must be completed before archiving.
+     */
+    public ArchivePolicy(int minDoneTasks, double minDoneRatio) {
+        assert minDoneTasks > 0 : "minDoneTasks should be positive";
+        assert minDoneRatio >= 0 && minDoneRatio <= 1 : "minDoneRatio should be between 0 and 1";
+        this.minDoneTasks = minDoneTasks;
+        this.minDoneRatio = minDoneRatio;
+    }
+
+    /**
+     * Returns whether completed tasks should be archived.
+     * @param doneCount The number of completed tasks in the list.
+     * @param totalCount The number of tasks in the list.
+     */
+    public boolean shouldArchive(int doneCount, int totalCount) {
+        return doneCount >= minDoneTasks && doneCount >= totalCount * minDoneRatio;
+    }
+}
@@ -0,0 +1,34 @@
+package eunai.storage;
+
+/**
+ * Represents when outstanding changes are written to disk without being asked to.
+ * Changes are saved once {@code mutationThreshold} changes have piled up, or {@code intervalMillis}
+ * after the previous save, whichever comes first.
+ */
+public class AutosavePolicy {
+    /** Saves after every command that changes something, and otherwise once a second. */
+    public static final AutosavePolicy DEFAULT = new AutosavePolicy(1, 1000);
+
+    private final int mutationThreshold;
+    private final long intervalMillis;
+
+    /**
+     * Constructs an {@code AutosavePolicy}.
+     * @param mutationThreshold The number of changes that triggers a save.
+     * @param intervalMillis The longest time in milliseconds that changes wait before being saved.
+     */
+    public AutosavePolicy(int mutationThreshold, long intervalMillis) {
+        assert mutationThreshold > 0 : "mutationThreshold should be positive";
+        assert intervalMillis > 0 : "intervalMillis should be positive";
+        this.mutationThreshold = mutationThreshold;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public int getMutationThreshold() {
+        return mutationThreshold;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+}
@@ -0,0 +1,385 @@
+package eunai.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import eunai.task.Deadline;
+import eunai.task.Event;
+import eunai.task.Task;
+import eunai.task.ToDo;
+
+/**
+ * Reads and writes snapshots of the task list in a compact binary format.
+ * <p>
+ * Loading a binary snapshot needs no splitting, regex matching or date parsing, which makes it
+ * much faster than the text format for large lists. All numbers are big-endian.
+ * </p>
+ * <p>
+ * Records are grouped into blocks, each protected by a CRC32C checksum, and a footer at the end of the
+ * file indexes where every block starts. Loading checks every block in one sequential pass; a damaged
+ * block is reported with exactly which tasks it held, while the rest of the file loads as usual.
+ * Without an intact footer, blocks are found by following their lengths instead.
+ * </p>
+ * <p>
+ * Every task of a damaged block is replaced by a placeholder to-do saying which task it stands for,
+ * so the tasks after it keep their positions. Journal records refer to tasks by position, so without
+ * the placeholders, replaying the journal would change the wrong tasks.
+ * </p>
+ * <pre>
+ * header:  int magic ("EUNB"), int version, long record count
+ * block:   int record count, int payload length, int CRC32C of payload, payload of records
+ * record:  byte type ('T', 'D' or 'E'), byte done (0 or 1),
+ *          int description length, UTF-8 description bytes,
+ *          long by (deadlines only) or long start, long end (events only)
+ * footer:  per block: long offset, int record count;
+ *          then int block count, int CRC32C of the index, long index offset, int footer magic ("EUNX")
+ * </pre>
+ * Dates are stored as epoch seconds of the local date-time taken as UTC.
+ * Version 1 files, which hold the records straight after the header with no blocks or footer,
+ * can still be read.
+ */
+public class BinarySnapshot implements SnapshotFormat {
+    /** The first four bytes of every binary snapshot, "EUNB" in ASCII. */
+    public static final int MAGIC = 0x45554E42;
+    /** The version of the format written by this class. */
+    public static final int VERSION = 2;
+
+    private static final int FOOTER_MAGIC = 0x45554E58;
+    private static final int HEADER_SIZE = 16;
+    private static final int BLOCK_HEADER_SIZE = 12;
+    private static final int INDEX_ENTRY_SIZE = 12;
+    private static final int TAIL_SIZE = 20;
+    private static final int RECORDS_PER_BLOCK = 1024;
+    private static final int MIN_RECORD_SIZE = 6;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Reads every task from the snapshot, printing a message for every damaged block.
+     * @param file The snapshot file.
+     * @return An {@code ArrayList} of the tasks, in order, with placeholders for those in damaged blocks.
+     */
+    @Override
+    public ArrayList<Task> read(Path file) throws IOException {
+        List<String> damage = new ArrayList<>();
+        ArrayList<Task> tasks = read(file, damage);
+        for (String message : damage) {
+            System.out.println(message);
+        }
+        return tasks;
+    }
+
+    /**
+     * Reads every task from the snapshot, describing each damaged part of the file in {@code damage}.
+     * @param file The snapshot file.
+     * @param damage The list to add a message to for every damaged block, saying which tasks were lost.
+     * @return An {@code ArrayList} of the tasks, in order, with placeholders for those in damaged blocks.
+     */
+    public ArrayList<Task> read(Path file, List<String> damage) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary snapshot: " + file);
+            }
+            int version = header.getInt(4);
+            long count = header.getLong(8);
+            if (version == 1) {
+                return readVersion1(file, count);
+            }
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary snapshot version " + version);
+            }
+            if (count < 0 || count > (channel.size() - HEADER_SIZE) / MIN_RECORD_SIZE) {
+                throw new IOException("Corrupted binary snapshot: impossible task count " + count);
+            }
+            ArrayList<Task> tasks = new ArrayList<>((int) Math.min(count, Integer.MAX_VALUE - 8));
+            long[][] index = readIndex(channel);
+            if (index == null) {
+                damage.add("The index of " + file + " is damaged, so its blocks are checked one by one.");
+                readBlocksInSequence(channel, count, tasks, damage);
+            } else {
+                readIndexedBlocks(channel, index, tasks, damage);
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Reads the block index from the footer.
+     * @return The offset and record count of every block, or null if the footer is missing or damaged.
+     */
+    private long[][] readIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + TAIL_SIZE) {
+            return null;
+        }
+        ByteBuffer tail = ByteBuffer.allocate(TAIL_SIZE);
+        readFully(channel, tail, size - TAIL_SIZE);
+        int blockCount = tail.getInt(0);
+        long indexOffset = tail.getLong(8);
+        if (tail.getInt(16) != FOOTER_MAGIC || blockCount < 0
+                || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE != size - TAIL_SIZE) {
+            return null;
+        }
+        ByteBuffer entries = ByteBuffer.allocate(blockCount * INDEX_ENTRY_SIZE);
+        readFully(channel, entries, indexOffset);
+        if (checksum(entries.array(), entries.capacity()) != tail.getInt(4)) {
+            return null;
+        }
+        long[][] index = new long[blockCount][];
+        for (int i = 0; i < blockCount; i++) {
+            index[i] = new long[] {entries.getLong(i * INDEX_ENTRY_SIZE), entries.getInt(i * INDEX_ENTRY_SIZE + 8)};
+        }
+        return index;
+    }
+
+    /**
+     * Reads the blocks listed in the index, putting placeholders in place of damaged ones.
+     */
+    private void readIndexedBlocks(FileChannel channel, long[][] index, ArrayList<Task> tasks,
+                                   List<String> damage) throws IOException {
+        long firstTask = 1;
+        for (int i = 0; i < index.length; i++) {
+            int recordCount = (int) index[i][1];
+            byte[] payload = readBlock(channel, index[i][0], recordCount);
+            if (payload == null || !decodeBlock(payload, recordCount, tasks)) {
+                markLost(i, firstTask, firstTask + recordCount - 1, tasks, damage);
+            }
+            firstTask += recordCount;
+        }
+    }
+
+    /**
+     * Reads blocks by following their lengths from the start of the file. A damaged block can still be
+     * skipped over as long as its length is believable; once it is not, the rest of the file is lost
+     * and replaced by placeholders.
+     */
+    private void readBlocksInSequence(FileChannel channel, long count, ArrayList<Task> tasks,
+                                      List<String> damage) throws IOException {
+        long position = HEADER_SIZE;
+        long firstTask = 1;
+        long size = channel.size();
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        for (int block = 0; firstTask <= count; block++) {
+            if (position + BLOCK_HEADER_SIZE > size) {
+                markLost(block, firstTask, count, tasks, damage);
+                return;
+            }
+            readFully(channel, blockHeader.clear(), position);
+            int recordCount = blockHeader.getInt(0);
+            int payloadLength = blockHeader.getInt(4);
+            if (recordCount <= 0 || recordCount > RECORDS_PER_BLOCK || payloadLength < 0
+                    || position + BLOCK_HEADER_SIZE + payloadLength > size) {
+                markLost(block, firstTask, count, tasks, damage);
+                return;
+            }
+            byte[] payload = readBlock(channel, position, recordCount);
+            if (payload == null || !decodeBlock(payload, recordCount, tasks)) {
+                markLost(block, firstTask, firstTask + recordCount - 1, tasks, damage);
+            }
+            position += BLOCK_HEADER_SIZE + payloadLength;
+            firstTask += recordCount;
+        }
+    }
+
+    /**
+     * Reports tasks {@code firstTask} to {@code lastTask} (counting from 1) as lost, and adds a placeholder
+     * for each of them.
+     */
+    private static void markLost(int block, long firstTask, long lastTask, ArrayList<Task> tasks,
+                                 List<String> damage) {
+        damage.add("Block " + (block + 1) + " of the saved tasks is damaged. Lost tasks "
+                + firstTask + " to " + lastTask + ", which are kept as placeholders.");
+        for (long task = firstTask; task <= lastTask; task++) {
+            tasks.add(new ToDo("(damaged) saved task " + task + " could not be read", false));
+        }
+    }
+
+    /**
+     * Reads the payload of the block at {@code offset}.
+     * @return The payload, or null if the block does not hold {@code recordCount} records
+     *     or fails its checksum.
+     */
+    private byte[] readBlock(FileChannel channel, long offset, int recordCount) throws IOException {
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        if (offset < HEADER_SIZE || offset + BLOCK_HEADER_SIZE > channel.size()) {
+            return null;
+        }
+        readFully(channel, blockHeader, offset);
+        int payloadLength = blockHeader.getInt(4);
+        if (blockHeader.getInt(0) != recordCount || payloadLength < 0
+                || offset + BLOCK_HEADER_SIZE + payloadLength > channel.size()) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        readFully(channel, payload, offset + BLOCK_HEADER_SIZE);
+        return checksum(payload.array(), payloadLength) == blockHeader.getInt(8) ? payload.array() : null;
+    }
+
+    /**
+     * Decodes the records of a block whose checksum matched.
+     * @return false if the records do not decode, in which case nothing is added.
+     */
+    private boolean decodeBlock(byte[] payload, int recordCount, ArrayList<Task> tasks) {
+        List<Task> decoded = new ArrayList<>(recordCount);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte[] buffer = new byte[256];
+            for (int i = 0; i < recordCount; i++) {
+                buffer = readRecord(in, buffer, decoded);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        tasks.addAll(decoded);
+        return true;
+    }
+
+    /**
+     * Reads a version 1 snapshot, in which records follow the header directly.
+     */
+    private ArrayList<Task> readVersion1(Path file, long count) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            in.skipNBytes(HEADER_SIZE);
+            ArrayList<Task> tasks = new ArrayList<>((int) Math.min(count, Integer.MAX_VALUE - 8));
+            byte[] buffer = new byte[256];
+            for (long i = 0; i < count; i++) {
+                buffer = readRecord(in, buffer, tasks);
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Reads one record and adds its task to {@code tasks}.
+     * @return The buffer to use for the next description, grown if needed.
+     */
+    private byte[] readRecord(DataInputStream in, byte[] buffer, List<Task> tasks) throws IOException {
+        byte type = in.readByte();
+        boolean isDone = in.readByte() == 1;
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted binary snapshot: negative description length");
+        }
+        if (length > buffer.length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        in.readFully(buffer, 0, length);
+        String description = new String(buffer, 0, length, StandardCharsets.UTF_8);
+        tasks.add(readTask(in, type, description, isDone));
+        return buffer;
+    }
+
+    /**
+     * Reads the type-specific fields of a record and creates the task.
+     */
+    private Task readTask(DataInputStream in, byte type, String description, boolean isDone) throws IOException {
+        switch (type) {
+        case 'T':
+            return new ToDo(description, isDone);
+        case 'D':
+            return new Deadline(description, isDone, toDateTime(in.readLong()));
+        case 'E':
+            LocalDateTime start = toDateTime(in.readLong());
+            return new Event(description, isDone, start, toDateTime(in.readLong()));
+        default:
+            throw new IOException("Corrupted binary snapshot: unknown task type " + type);
+        }
+    }
+
+    @Override
+    public void write(Path file, List<Task> tasks) throws IOException {
+        try (FileOutputStream fileOut = new FileOutputStream(file.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(tasks.size());
+
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(index);
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            DataOutputStream blockOut = new DataOutputStream(block);
+            int blockCount = 0;
+            long position = HEADER_SIZE;
+            for (int start = 0; start < tasks.size(); start += RECORDS_PER_BLOCK) {
+                int end = Math.min(start + RECORDS_PER_BLOCK, tasks.size());
+                block.reset();
+                for (Task task : tasks.subList(start, end)) {
+                    writeTask(blockOut, task);
+                }
+                indexOut.writeLong(position);
+                indexOut.writeInt(end - start);
+                out.writeInt(end - start);
+                out.writeInt(block.size());
+                out.writeInt(checksum(block.toByteArray(), block.size()));
+                block.writeTo(out);
+                position += BLOCK_HEADER_SIZE + block.size();
+                blockCount++;
+            }
+
+            index.writeTo(out);
+            out.writeInt(blockCount);
+            out.writeInt(checksum(index.toByteArray(), index.size()));
+            out.writeLong(position);
+            out.writeInt(FOOTER_MAGIC);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    /**
+     * Writes a single task as one record.
+     */
+    private void writeTask(DataOutputStream out, Task task) throws IOException {
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        out.writeByte(task.getTaskType().getCode());
+        out.writeByte(task.taskStatus() ? 1 : 0);
+        out.writeInt(description.length);
+        out.write(description);
+        if (task instanceof Deadline) {
+            out.writeLong(toEpochSecond(((Deadline) task).getByDate()));
+        } else if (task instanceof Event) {
+            out.writeLong(toEpochSecond(((Event) task).getStartDate()));
+            out.writeLong(toEpochSecond(((Event) task).getEndDate()));
+        }
+    }
+
+    private static int checksum(byte[] bytes, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of binary snapshot");
+            }
+        }
+    }
+
+    static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime toDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
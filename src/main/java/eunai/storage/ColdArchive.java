@@ -0,0 +1,142 @@
+package eunai.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import eunai.task.Task;
+
+/**
+ * Represents an append-only, compressed file of archived tasks.
+ * <p>
+ * Every call to {@link #append(List)} writes one segment: an {@code int} holding the compressed length,
+ * followed by the tasks in the text file format, one per line, compressed with deflate. Searching
+ * decompresses one segment at a time, so the archive never has to fit in memory.
+ * A segment that was only partly written when the application stopped is cut off the next time
+ * the archive is appended to, and is skipped when searching.
+ * </p>
+ */
+public class ColdArchive {
+    private static final int SEGMENT_HEADER_SIZE = Integer.BYTES;
+
+    private final Path file;
+
+    /**
+     * Constructs a {@code ColdArchive} stored in the given file. The file is created on the first append.
+     * @param file The path of the archive file.
+     */
+    public ColdArchive(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Compresses the tasks into a new segment at the end of the archive and waits until it is on disk.
+     * @param tasks The tasks to archive.
+     */
+    public void append(List<Task> tasks) throws IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+            for (Task task : tasks) {
+                out.write(task.toFileFormat().getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ)) {
+            long end = findEndOfLastSegment(channel);
+            channel.truncate(end);
+            ByteBuffer segment = ByteBuffer.allocate(SEGMENT_HEADER_SIZE + compressed.size());
+            segment.putInt(compressed.size()).put(compressed.toByteArray()).flip();
+            while (segment.hasRemaining()) {
+                end += channel.write(segment, end);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Returns every archived task that satisfies the condition, in the order they were archived.
+     * @param condition The condition a task must satisfy.
+     * @return A list of the matching tasks.
+     */
+    public List<Task> search(Predicate<Task> condition) throws IOException {
+        List<Task> matches = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return matches;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] segment = new byte[length];
+                try {
+                    in.readFully(segment);
+                } catch (EOFException e) {
+                    // The last segment was only partly written
+                    break;
+                }
+                searchSegment(segment, condition, matches);
+            }
+        }
+        return matches;
+    }
+
+    private void searchSegment(byte[] segment, Predicate<Task> condition, List<Task> matches) throws IOException {
+        InputStream inflated = new InflaterInputStream(new ByteArrayInputStream(segment));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inflated, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Task task = TaskParser.parseTask(line);
+                if (task != null && condition.test(task)) {
+                    matches.add(task);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the offset just after the last complete segment, reading only the segment headers.
+     */
+    private long findEndOfLastSegment(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        while (position + SEGMENT_HEADER_SIZE <= size) {
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.read(header, position + header.position());
+            }
+            long next = position + SEGMENT_HEADER_SIZE + header.getInt(0);
+            if (next > size) {
+                break;
+            }
+            position = next;
+        }
+        return position;
+    }
+}
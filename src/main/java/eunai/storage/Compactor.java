@@ -0,0 +1,198 @@
+package eunai.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import eunai.task.Task;
+
+/**
+ * Folds the journal into a fresh snapshot of the data file on a background thread.
+ * <p>
+ * Once the journal grows past a threshold it is moved aside to {@code <data file>.journal.compacting}
+ * and a new journal is started. The background thread then replays the moved journal on top of the
+ * snapshot read from disk, so the live task list is never touched and commands keep running meanwhile.
+ * </p>
+ * <p>
+ * A snapshot is never written over the data file directly, so the data file is never half-written:
+ * </p>
+ * <ol>
+ * <li>the new snapshot is written to {@code <data file>.tmp} and forced to disk,</li>
+ * <li>it is renamed to {@code <data file>.ready}, marking it as complete,</li>
+ * <li>the folded journal is deleted,</li>
+ * <li>{@code <data file>.ready} is renamed over the data file.</li>
+ * </ol>
+ * <p>
+ * Windows refuses the last rename while a {@link LazyTaskList} still maps the data file. The ready snapshot
+ * then stands in for the data file until the next start, when {@link #recover()} renames it into place.
+ * </p>
+ * <p>
+ * Formats that support it (see {@link SnapshotFormat#applyInPlace(Path, Path)}) skip all of this and
+ * write just the changed records into the data file instead.
+ * {@link #recover()} completes or discards these steps after a crash.
+ * </p>
+ */
+public class Compactor {
+    private static final long COMPACTION_THRESHOLD_BYTES = 1L << 20;
+    private static final long CHECK_INTERVAL_SECONDS = 60;
+
+    private final Path dataFile;
+    private final Path tempFile;
+    private final Path readyFile;
+    private final Path foldingJournal;
+    private final Journal journal;
+    private final ScheduledExecutorService executor;
+    private Future<?> running;
+
+    /**
+     * Constructs a {@code Compactor} for the given data file and its journal.
+     * @param dataFile The snapshot file.
+     * @param journal The live journal of changes made after the snapshot.
+     */
+    public Compactor(Path dataFile, Journal journal) {
+        this.dataFile = dataFile;
+        this.tempFile = Path.of(dataFile + ".tmp");
+        this.readyFile = Path.of(dataFile + ".ready");
+        this.foldingJournal = Path.of(dataFile + ".journal.compacting");
+        this.journal = journal;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "eunai-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Brings the files back to a consistent state after a crash during compaction.
+     * Must be called before the snapshot is read.
+     */
+    public void recover() throws IOException {
+        SnapshotFormat.detect(dataFile).recover(dataFile, foldingJournal);
+        Files.deleteIfExists(tempFile);
+        if (Files.exists(readyFile)) {
+            // The ready snapshot already contains the folded journal
+            Files.deleteIfExists(foldingJournal);
+            Files.move(readyFile, dataFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Returns the journal that was moved aside for folding.
+     * It exists only while a compaction is in progress or was interrupted, and must be replayed
+     * after the snapshot and before the live journal.
+     */
+    public Path getFoldingJournal() {
+        return foldingJournal;
+    }
+
+    /**
+     * Starts checking the journal size periodically in the background.
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(this::compactIfNeeded, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts a background compaction if the journal has grown past the threshold,
+     * or if an earlier compaction did not finish. Returns immediately.
+     */
+    public synchronized void compactIfNeeded() {
+        if (running != null && !running.isDone()) {
+            return;
+        }
+        try {
+            if (!Files.exists(foldingJournal)) {
+                if (journal.size() < COMPACTION_THRESHOLD_BYTES) {
+                    return;
+                }
+                journal.rotate(foldingJournal);
+            }
+            running = executor.submit(() -> {
+                try {
+                    fold();
+                } catch (IOException e) {
+                    System.out.println("Error compacting the journal. Will try again later.");
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("Error rotating the journal. It will keep growing until the next save.");
+        }
+    }
+
+    /**
+     * Replays the folded journal on top of the snapshot on disk and installs the result.
+     */
+    private void fold() throws IOException {
+        Path snapshot = currentSnapshot();
+        if (Files.exists(snapshot) && SnapshotFormat.detect(snapshot).applyInPlace(snapshot, foldingJournal)) {
+            return;
+        }
+        ArrayList<Task> tasks = Files.exists(snapshot)
+                ? SnapshotFormat.detect(snapshot).read(snapshot)
+                : new ArrayList<>();
+        new Journal(foldingJournal).replay(tasks);
+        install(tasks);
+    }
+
+    /**
+     * Writes {@code tasks} as the new snapshot, replacing both the data file and the journal
+     * in effect at the time of the call. Waits for any running compaction to finish first.
+     * @param tasks The complete, current list of tasks.
+     */
+    public synchronized void saveSnapshot(List<Task> tasks) throws IOException {
+        awaitRunning();
+        if (Files.exists(foldingJournal)) {
+            // Left behind by a failed compaction, and must not be overwritten by the rotation below
+            fold();
+        }
+        journal.rotate(foldingJournal);
+        install(tasks);
+    }
+
+    /**
+     * Atomically replaces the data file with a snapshot of {@code tasks} and drops the folded journal.
+     * The snapshot keeps the format the data file is already stored in.
+     */
+    private void install(List<Task> tasks) throws IOException {
+        SnapshotFormat.detect(currentSnapshot()).write(tempFile, tasks);
+        Files.move(tempFile, readyFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(foldingJournal);
+        try {
+            Files.move(readyFile, dataFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The data file is still mapped; the ready snapshot is complete and is used in its place
+        }
+    }
+
+    /**
+     * Returns the newest complete snapshot: the ready snapshot if it could not be renamed over the data file
+     * yet, or else the data file.
+     */
+    private Path currentSnapshot() {
+        return Files.exists(readyFile) ? readyFile : dataFile;
+    }
+
+    /**
+     * Blocks until the running compaction, if any, has finished.
+     */
+    private void awaitRunning() {
+        if (running == null) {
+            return;
+        }
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Already reported by the compaction itself
+        }
+    }
+}
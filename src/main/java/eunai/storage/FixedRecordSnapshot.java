@@ -0,0 +1,454 @@
+package eunai.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import eunai.task.Deadline;
+import eunai.task.Event;
+import eunai.task.Task;
+import eunai.task.ToDo;
+
+/**
+ * Reads and writes snapshots as fixed-width records, which lets journaled changes be written straight
+ * into the snapshot instead of rewriting it.
+ * <p>
+ * Because every record has the same width, the record of a task can be found without reading the ones
+ * before it. When the journal is folded, only the records of tasks that changed are written: a changed
+ * task is overwritten in place, a new task is appended, and a deleted task is tombstoned by setting a
+ * flag. Marking one task in a list of a million therefore writes a few hundred bytes. Once more than
+ * half of the slots are tombstones, the snapshot is rewritten without them instead, so deleted tasks
+ * do not keep the file growing. All numbers are big-endian.
+ * </p>
+ * <pre>
+ * header:  int magic ("EUNF"), int version, int record width, int reserved, long slot count, 8 reserved bytes
+ * record:  byte flags (1 = done, 2 = deleted), byte type ('T', 'D' or 'E'), int description length,
+ *          long by or start, long end, UTF-8 description bytes padded with zeroes to the record width
+ * </pre>
+ * <p>
+ * Version 1 stored the description length as a short, so it could not hold descriptions over 65535
+ * bytes. Version 1 snapshots are still read, and are rewritten as version 2 the next time they are folded.
+ * </p>
+ * <p>
+ * An in-place update first writes every changed record to {@code <data file>.redo} (through a
+ * {@code .redo.tmp} file, renamed once complete), and only then writes into the snapshot. Writing a
+ * record to its slot twice has the same effect as once, so {@link #recover(Path, Path)} can simply apply
+ * a complete redo file again after a crash.
+ * </p>
+ */
+public class FixedRecordSnapshot implements SnapshotFormat {
+    /** The first four bytes of every fixed-width snapshot, "EUNF" in ASCII. */
+    public static final int MAGIC = 0x45554E46;
+    /** The version of the format written by this class. */
+    public static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_COUNT_OFFSET = 16;
+    private static final int RECORD_HEADER_SIZE = 22;
+    private static final int VERSION_1_RECORD_HEADER_SIZE = 20;
+    private static final int MIN_RECORD_WIDTH = 128;
+    // Keeps the record width, a power of two, within an int
+    private static final int MAX_DESCRIPTION_BYTES = (1 << 30) - RECORD_HEADER_SIZE;
+    private static final long WINDOW_SIZE = 64L << 20;
+    private static final byte DONE = 1;
+    private static final byte DELETED = 2;
+
+    @Override
+    public ArrayList<Task> read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            byte[] header = new byte[HEADER_SIZE];
+            in.readFully(header);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            int width = checkHeader(headerBuffer, file);
+            int version = headerBuffer.getInt(4);
+            long slotCount = headerBuffer.getLong(SLOT_COUNT_OFFSET);
+
+            ArrayList<Task> tasks = new ArrayList<>((int) Math.min(slotCount, Integer.MAX_VALUE - 8));
+            byte[] record = new byte[width];
+            for (long slot = 0; slot < slotCount; slot++) {
+                in.readFully(record);
+                ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+                if ((recordBuffer.get(0) & DELETED) == 0) {
+                    tasks.add(decode(recordBuffer, version));
+                }
+            }
+            return tasks;
+        }
+    }
+
+    @Override
+    public void write(Path file, List<Task> tasks) throws IOException {
+        int width = MIN_RECORD_WIDTH;
+        for (Task task : tasks) {
+            width = Math.max(width, widthFor(task));
+        }
+        try (FileOutputStream fileOut = new FileOutputStream(file.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(0).putLong(tasks.size());
+            out.write(header.array());
+            ByteBuffer record = ByteBuffer.allocate(width);
+            for (Task task : tasks) {
+                encode(task, record.clear());
+                out.write(record.array());
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    /**
+     * Writes the changes committed in {@code journal} into the records of {@code file}, then deletes the
+     * journal. Nothing is changed if the file is of an earlier version, if a new task does not fit in the
+     * record width of the file, or if more than half of the slots would be tombstones, since rewriting the
+     * snapshot then reclaims them.
+     * @param file The fixed-width snapshot to update.
+     * @param journal The journal of changes made after the snapshot.
+     * @return true if the changes were written and the journal deleted; false if the snapshot must be
+     *     rewritten instead.
+     */
+    @Override
+    public boolean applyInPlace(Path file, Path journal) throws IOException {
+        Path redoFile = redoFileOf(file);
+        Path redoTempFile = Path.of(redoFile + ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            int width = checkHeader(header, file);
+            if (header.getInt(4) != VERSION) {
+                // Rewriting the snapshot brings it up to the current version
+                return false;
+            }
+            SlotView slots = new SlotView(channel, width, header.getLong(SLOT_COUNT_OFFSET));
+            try {
+                new Journal(journal).replay(slots);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (UnsupportedOperationException e) {
+                // The journal puts a task back between others, which only a rewrite can do
+                return false;
+            }
+            if (slots.getRequiredWidth() > width || slots.getSlotCount() - slots.size() > slots.getSlotCount() / 2) {
+                return false;
+            }
+            writeRedo(redoTempFile, slots, width);
+        }
+        Files.move(redoTempFile, redoFile, StandardCopyOption.ATOMIC_MOVE);
+        applyRedo(file, redoFile);
+        Files.deleteIfExists(journal);
+        Files.delete(redoFile);
+        return true;
+    }
+
+    /**
+     * Finishes an in-place update that was interrupted by a crash. A complete redo file is applied again
+     * and the journal it came from is deleted; an incomplete one is discarded, leaving the journal to be
+     * folded again.
+     * @param file The fixed-width snapshot.
+     * @param journal The journal that was being folded into the snapshot.
+     */
+    @Override
+    public void recover(Path file, Path journal) throws IOException {
+        Path redoFile = redoFileOf(file);
+        Files.deleteIfExists(Path.of(redoFile + ".tmp"));
+        if (Files.exists(redoFile)) {
+            applyRedo(file, redoFile);
+            Files.deleteIfExists(journal);
+            Files.delete(redoFile);
+        }
+    }
+
+    private static Path redoFileOf(Path file) {
+        return Path.of(file + ".redo");
+    }
+
+    /**
+     * Writes the new slot count and every changed record, followed by a count of the records,
+     * and forces the file to disk.
+     */
+    private void writeRedo(Path redoFile, SlotView slots, int width) throws IOException {
+        try (FileOutputStream fileOut = new FileOutputStream(redoFile.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(width);
+            out.writeLong(slots.getSlotCount());
+            out.writeInt(slots.getChanges().size());
+            ByteBuffer record = ByteBuffer.allocate(width);
+            for (Map.Entry<Long, Task> change : slots.getChanges().entrySet()) {
+                out.writeLong(change.getKey());
+                if (change.getValue() == null) {
+                    Arrays.fill(record.array(), (byte) 0);
+                    record.put(0, DELETED);
+                } else {
+                    encode(change.getValue(), record.clear());
+                }
+                out.write(record.array());
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    /**
+     * Writes the records in the redo file into their slots through memory-mapped windows of the
+     * snapshot, then updates the slot count. Changed records are visited in slot order, so each
+     * window is mapped at most once.
+     */
+    private void applyRedo(Path file, Path redoFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(redoFile)));
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int width = in.readInt();
+            long slotCount = in.readLong();
+            int changeCount = in.readInt();
+            long slotsPerWindow = Math.max(1, WINDOW_SIZE / width);
+            byte[] record = new byte[width];
+
+            MappedByteBuffer window = null;
+            long windowStart = 0;
+            long windowEnd = 0;
+            for (int i = 0; i < changeCount; i++) {
+                long slot = in.readLong();
+                in.readFully(record);
+                if (window == null || slot < windowStart || slot >= windowEnd) {
+                    if (window != null) {
+                        window.force();
+                    }
+                    windowStart = slot;
+                    windowEnd = Math.min(slot + slotsPerWindow, slotCount);
+                    window = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + slot * width,
+                            (windowEnd - windowStart) * width);
+                }
+                window.put((int) ((slot - windowStart) * width), record);
+            }
+            if (window != null) {
+                window.force();
+            }
+            ByteBuffer count = ByteBuffer.allocate(Long.BYTES).putLong(slotCount).flip();
+            while (count.hasRemaining()) {
+                channel.write(count, SLOT_COUNT_OFFSET + count.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Checks the magic number and version in the header and returns the record width.
+     */
+    private static int checkHeader(ByteBuffer header, Path file) throws IOException {
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a fixed-width snapshot: " + file);
+        }
+        int version = header.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported fixed-width snapshot version " + version);
+        }
+        return header.getInt(8);
+    }
+
+    /**
+     * Returns the smallest record width, a power of two, that fits the task.
+     */
+    private static int widthFor(Task task) throws IOException {
+        int descriptionBytes = task.getDescription().getBytes(StandardCharsets.UTF_8).length;
+        if (descriptionBytes > MAX_DESCRIPTION_BYTES) {
+            throw new IOException("Task description is too long for a fixed-width snapshot");
+        }
+        return Math.max(MIN_RECORD_WIDTH, Integer.highestOneBit(RECORD_HEADER_SIZE + descriptionBytes - 1) << 1);
+    }
+
+    /**
+     * Encodes a task into {@code record}, which must be cleared and at least as wide as the task needs.
+     */
+    private static void encode(Task task, ByteBuffer record) {
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        long first = 0;
+        long second = 0;
+        if (task instanceof Deadline) {
+            first = BinarySnapshot.toEpochSecond(((Deadline) task).getByDate());
+        } else if (task instanceof Event) {
+            first = BinarySnapshot.toEpochSecond(((Event) task).getStartDate());
+            second = BinarySnapshot.toEpochSecond(((Event) task).getEndDate());
+        }
+        record.put(task.taskStatus() ? DONE : 0)
+                .put((byte) task.getTaskType().getCode())
+                .putInt(description.length)
+                .putLong(first)
+                .putLong(second)
+                .put(description);
+        Arrays.fill(record.array(), record.position(), record.capacity(), (byte) 0);
+    }
+
+    /**
+     * Decodes the task in a record that is not deleted, laid out as in the given version of the format.
+     */
+    private static Task decode(ByteBuffer record, int version) throws IOException {
+        boolean isDone = (record.get(0) & DONE) != 0;
+        byte type = record.get(1);
+        int length = version == 1 ? record.getShort(2) & 0xFFFF : record.getInt(2);
+        int datesOffset = version == 1 ? 4 : 6;
+        int descriptionOffset = version == 1 ? VERSION_1_RECORD_HEADER_SIZE : RECORD_HEADER_SIZE;
+        if (length < 0 || length > record.capacity() - descriptionOffset) {
+            throw new IOException("Corrupted fixed-width snapshot: impossible description length " + length);
+        }
+        String description = new String(record.array(), descriptionOffset, length, StandardCharsets.UTF_8);
+        LocalDateTime first = BinarySnapshot.toDateTime(record.getLong(datesOffset));
+        switch (type) {
+        case 'T':
+            return new ToDo(description, isDone);
+        case 'D':
+            return new Deadline(description, isDone, first);
+        case 'E':
+            return new Event(description, isDone, first, BinarySnapshot.toDateTime(record.getLong(datesOffset + 8)));
+        default:
+            throw new IOException("Corrupted fixed-width snapshot: unknown task type " + type);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of fixed-width snapshot");
+            }
+        }
+    }
+
+    /**
+     * Presents the live records of a snapshot as a list, so that the journal can be replayed on it.
+     * Tasks are only decoded when the journal changes them, and every change is collected by slot
+     * instead of being written, so a task changed many times is written once.
+     */
+    private static class SlotView extends AbstractList<Task> {
+        private final FileChannel channel;
+        private final int width;
+        // Slot changes in slot order; a null task marks a deleted slot
+        private final TreeMap<Long, Task> changes = new TreeMap<>();
+        private long[] liveSlots;
+        private int size;
+        private long slotCount;
+        private int requiredWidth;
+
+        SlotView(FileChannel channel, int width, long slotCount) throws IOException {
+            this.channel = channel;
+            this.width = width;
+            this.slotCount = slotCount;
+            this.liveSlots = new long[(int) Math.min(slotCount + 16, Integer.MAX_VALUE - 8)];
+            long slotsPerWindow = Math.max(1, WINDOW_SIZE / width);
+            for (long start = 0; start < slotCount; start += slotsPerWindow) {
+                long count = Math.min(slotsPerWindow, slotCount - start);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + start * width, count * width);
+                for (int i = 0; i < count; i++) {
+                    if ((window.get(i * width) & DELETED) == 0) {
+                        liveSlots[size++] = start + i;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Task get(int index) {
+            long slot = liveSlots[checkIndex(index)];
+            if (changes.containsKey(slot)) {
+                return changes.get(slot);
+            }
+            try {
+                ByteBuffer record = ByteBuffer.allocate(width);
+                readFully(channel, record, HEADER_SIZE + slot * width);
+                return decode(record, VERSION);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Task set(int index, Task task) {
+            Task previous = get(index);
+            requireWidth(task);
+            changes.put(liveSlots[index], task);
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Task task) {
+            if (index != size) {
+                throw new UnsupportedOperationException("Tasks can only be added at the end");
+            }
+            requireWidth(task);
+            if (size == liveSlots.length) {
+                liveSlots = Arrays.copyOf(liveSlots, size * 2);
+            }
+            liveSlots[size++] = slotCount;
+            changes.put(slotCount++, task);
+            modCount++;
+        }
+
+        @Override
+        public Task remove(int index) {
+            Task removed = get(index);
+            changes.put(liveSlots[index], null);
+            System.arraycopy(liveSlots, index + 1, liveSlots, index, size - index - 1);
+            size--;
+            modCount++;
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            for (int i = 0; i < size; i++) {
+                changes.put(liveSlots[i], null);
+            }
+            size = 0;
+            modCount++;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        long getSlotCount() {
+            return slotCount;
+        }
+
+        int getRequiredWidth() {
+            return requiredWidth;
+        }
+
+        Map<Long, Task> getChanges() {
+            return changes;
+        }
+
+        private void requireWidth(Task task) {
+            try {
+                requiredWidth = Math.max(requiredWidth, widthFor(task));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private int checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package eunai.storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import eunai.task.BulkRemovable;
+import eunai.task.Task;
+
+/**
+ * Represents an append-only log of task list mutations kept next to the task data file.
+ * <p>
+ * Each mutation is written as one short line, and the lines produced by a single command
+ * are closed off with a commit marker by {@link #endGroup()}. Closed groups are written to disk
+ * together with one {@code fsync} by {@link #commit()}, which may cover several commands
+ * (group commit). On startup the log is replayed on top of the last snapshot.
+ * </p>
+ * <pre>
+ * A T | 0 | read book     task appended
+ * D 3                     task at index 3 deleted
+ * I 2 T | 0 | read book   task inserted at index 2, as when undo puts back a deleted task
+ * M 0 / U 0               task at index 0 marked / unmarked
+ * R 2 T | 1 | read book   task at index 2 replaced
+ * X                       every task removed, as when undo has to replace the whole list
+ * C                       end of one committed group
+ * </pre>
+ * <p>
+ * Replacing the whole list is written as {@code X} followed by an {@code A} record for every new task.
+ * The records are only created when the replacement is committed, so the thread that replaced the list
+ * does not wait for them.
+ * </p>
+ */
+public class Journal {
+    private static final String ADD = "A";
+    private static final String DELETE = "D";
+    private static final String INSERT = "I";
+    private static final String MARK = "M";
+    private static final String UNMARK = "U";
+    private static final String REPLACE = "R";
+    private static final String CLEAR = "X";
+    private static final String COMMIT = "C";
+    private static final int WRITE_CHUNK_SIZE = 1 << 16;
+
+    private final Path path;
+    private final StringBuilder pending = new StringBuilder();
+    private final StringBuilder staged = new StringBuilder();
+    // The new contents of the list, to be written before the staged groups; null if not replaced
+    private List<Task> replacement;
+    // Held while writing to the file, so records can still be buffered during a slow write
+    private final Object writeLock = new Object();
+    // Both only touched while holding writeLock
+    private FileChannel channel;
+    private long committedLength = -1;
+
+    /**
+     * Constructs a {@code Journal} that reads from and appends to the given file.
+     * @param path The path of the journal file.
+     */
+    public Journal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Replays every committed group in the journal on top of {@code tasks}.
+     * A group that was only partly written (e.g. the program crashed mid-write) is ignored,
+     * and is cut off the end of the file when the journal is next opened.
+     * @param tasks The tasks loaded from the snapshot, modified in place.
+     * @return The number of records applied.
+     */
+    public int replay(List<Task> tasks) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int applied = 0;
+        long readLength = 0;
+        List<String> group = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                readLength += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                if (line.equals(COMMIT)) {
+                    for (String record : group) {
+                        applyRecord(record, tasks);
+                    }
+                    applied += group.size();
+                    group.clear();
+                    committedLength = readLength;
+                } else {
+                    group.add(line);
+                }
+            }
+        }
+        committedLength = Math.max(committedLength, 0);
+        return applied;
+    }
+
+    /**
+     * Applies a single journal record to {@code tasks}.
+     */
+    private void applyRecord(String record, List<Task> tasks) {
+        String op = record.substring(0, 1);
+        String arg = record.length() > 2 ? record.substring(2) : "";
+        try {
+            switch (op) {
+            case ADD:
+                Task task = TaskParser.parseTask(arg);
+                if (task != null) {
+                    tasks.add(task);
+                }
+                break;
+            case DELETE:
+                tasks.remove(Integer.parseInt(arg));
+                break;
+            case MARK:
+                setStatus(tasks, Integer.parseInt(arg), true);
+                break;
+            case UNMARK:
+                setStatus(tasks, Integer.parseInt(arg), false);
+                break;
+            case CLEAR:
+                clear(tasks);
+                break;
+            case INSERT:
+                tasks.add(parseIndex(arg), parseIndexedTask(arg));
+                break;
+            case REPLACE:
+                tasks.set(parseIndex(arg), parseIndexedTask(arg));
+                break;
+            default:
+                throw new IllegalArgumentException();
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            System.out.println("Skipping invalid journal record: " + record);
+        }
+    }
+
+    /**
+     * Returns the index at the start of an {@code I} or {@code R} record's argument.
+     */
+    private static int parseIndex(String arg) {
+        int separator = arg.indexOf(' ');
+        if (separator < 0) {
+            throw new IllegalArgumentException();
+        }
+        return Integer.parseInt(arg.substring(0, separator));
+    }
+
+    /**
+     * Returns the task after the index in an {@code I} or {@code R} record's argument.
+     */
+    private static Task parseIndexedTask(String arg) {
+        Task task = TaskParser.parseTask(arg.substring(arg.indexOf(' ') + 1));
+        if (task == null) {
+            throw new IllegalArgumentException();
+        }
+        return task;
+    }
+
+    /**
+     * Removes every task in one pass, even from lists that remove tasks one at a time by shifting the rest.
+     */
+    private static void clear(List<Task> tasks) {
+        if (tasks instanceof BulkRemovable) {
+            BitSet all = new BitSet();
+            all.set(0, tasks.size());
+            ((BulkRemovable) tasks).removeAll(all);
+        } else {
+            tasks.clear();
+        }
+    }
+
+    /**
+     * Changes the completion status of a task, writing it back with {@code set} so that lists which
+     * load tasks lazily keep the change.
+     */
+    private void setStatus(List<Task> tasks, int index, boolean isDone) {
+        Task task = tasks.get(index);
+        if (isDone) {
+            task.markTask();
+        } else {
+            task.unmarkTask();
+        }
+        tasks.set(index, task);
+    }
+
+    /**
+     * Opens the journal for appending, creating the file if needed.
+     */
+    public void open() throws IOException {
+        synchronized (writeLock) {
+            if (channel != null) {
+                return;
+            }
+            channel = openChannel(path);
+            if (committedLength >= 0 && channel.size() > committedLength) {
+                channel.truncate(committedLength);
+            }
+            committedLength = -1;
+        }
+    }
+
+    /**
+     * Opens the journal file for appending, creating it if needed.
+     * @param path The path of the journal file.
+     * @return The opened channel.
+     */
+    protected FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Buffers a record for a task appended to the end of the list.
+     * @param task The task that was added.
+     */
+    public synchronized void recordAdd(Task task) {
+        pending.append(ADD).append(' ').append(task.toFileFormat()).append('\n');
+    }
+
+    /**
+     * Buffers a record for a task removed from the list.
+     * @param index The index the task was removed from.
+     */
+    public synchronized void recordDelete(int index) {
+        pending.append(DELETE).append(' ').append(index).append('\n');
+    }
+
+    /**
+     * Buffers a record for a task inserted between others.
+     * @param index The index the task was inserted at.
+     * @param task The task that was inserted.
+     */
+    public synchronized void recordInsert(int index, Task task) {
+        pending.append(INSERT).append(' ').append(index).append(' ').append(task.toFileFormat()).append('\n');
+    }
+
+    /**
+     * Buffers a record for a change in completion status.
+     * @param index The index of the task.
+     * @param isDone The new completion status.
+     */
+    public synchronized void recordStatus(int index, boolean isDone) {
+        pending.append(isDone ? MARK : UNMARK).append(' ').append(index).append('\n');
+    }
+
+    /**
+     * Buffers a record for a task replaced by another.
+     * @param index The index of the task.
+     * @param task The task now at that index.
+     */
+    public synchronized void recordReplace(int index, Task task) {
+        pending.append(REPLACE).append(' ').append(index).append(' ').append(task.toFileFormat()).append('\n');
+    }
+
+    /**
+     * Buffers the replacement of the whole list by {@code tasks}, as by an undo that cannot put tasks back
+     * one by one. Records buffered before it are dropped, since the replacement supersedes them.
+     * @param tasks The new contents of the list. The list must never change, as it is only read when
+     *     the replacement is committed.
+     */
+    public synchronized void recordReplaceAll(List<Task> tasks) {
+        pending.setLength(0);
+        staged.setLength(0);
+        replacement = tasks;
+    }
+
+    /**
+     * Closes off the records buffered so far as one group, ready to be committed.
+     * Only closed groups are ever written, so a group is either replayed completely or not at all.
+     */
+    public synchronized void endGroup() {
+        if (pending.length() == 0) {
+            return;
+        }
+        staged.append(pending).append(COMMIT).append('\n');
+        pending.setLength(0);
+    }
+
+    /**
+     * Writes the replacement of the list, if any, and all closed groups to the journal, then forces them
+     * to disk. Records of a group that has not been closed by {@link #endGroup()} are kept buffered, and
+     * new records can be buffered while the write is in progress.
+     * Does nothing if there is nothing to write.
+     */
+    public void commit() throws IOException {
+        synchronized (writeLock) {
+            String groups;
+            List<Task> replaced;
+            synchronized (this) {
+                if (staged.length() == 0 && replacement == null) {
+                    return;
+                }
+                groups = staged.toString();
+                staged.setLength(0);
+                replaced = replacement;
+                replacement = null;
+            }
+            long start = -1;
+            try {
+                open();
+                start = channel.size();
+                if (replaced != null) {
+                    writeReplacement(replaced);
+                }
+                write(groups);
+                channel.force(false);
+            } catch (IOException e) {
+                discardTornWrite(start);
+                synchronized (this) {
+                    // A newer replacement supersedes everything that failed to be written
+                    if (replacement == null) {
+                        staged.insert(0, groups);
+                        replacement = replaced;
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Cuts off whatever part of a failed write reached the file, so that retrying it does not leave
+     * a torn copy in front of the complete one. If that fails too, the file is closed and cut off
+     * when it is next opened instead.
+     * @param start The length of the file before the write, or -1 if the write never started.
+     */
+    private void discardTornWrite(long start) {
+        if (start < 0) {
+            return;
+        }
+        try {
+            channel.truncate(start);
+        } catch (IOException e) {
+            committedLength = start;
+            try {
+                close();
+            } catch (IOException closeFailure) {
+                // The channel is dropped either way, and the next open cuts the file
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Writes a group that clears the list and adds every task in {@code tasks}, in chunks.
+     */
+    private void writeReplacement(List<Task> tasks) throws IOException {
+        StringBuilder chunk = new StringBuilder(CLEAR).append('\n');
+        for (Task task : tasks) {
+            chunk.append(ADD).append(' ').append(task.toFileFormat()).append('\n');
+            if (chunk.length() >= WRITE_CHUNK_SIZE) {
+                write(chunk.toString());
+                chunk.setLength(0);
+            }
+        }
+        write(chunk.append(COMMIT).append('\n').toString());
+    }
+
+    private void write(String records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Returns the number of committed bytes in the journal.
+     */
+    public long size() throws IOException {
+        synchronized (writeLock) {
+            if (channel != null) {
+                return channel.size();
+            }
+            return Files.exists(path) ? Files.size(path) : 0;
+        }
+    }
+
+    /**
+     * Moves the committed part of the journal to {@code target} and starts a new, empty journal.
+     * Records and groups not yet committed are kept and will be written to the new journal.
+     * @param target The path to move the current journal file to.
+     */
+    public void rotate(Path target) throws IOException {
+        synchronized (writeLock) {
+            close();
+            if (Files.exists(path)) {
+                Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            committedLength = -1;
+            open();
+        }
+    }
+
+    /**
+     * Empties the journal, e.g. after its contents have been folded into a fresh snapshot.
+     */
+    public void reset() throws IOException {
+        synchronized (writeLock) {
+            open();
+            channel.truncate(0);
+            channel.force(true);
+            synchronized (this) {
+                pending.setLength(0);
+                staged.setLength(0);
+                replacement = null;
+            }
+        }
+    }
+
+    /**
+     * Closes the underlying file. Records that were not committed stay buffered.
+     */
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package eunai.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import eunai.task.Task;
+
+/**
+ * Keeps the task list as a snapshot file plus a journal of the changes made after it.
+ * <p>
+ * Changes are appended to a journal ({@code <data file>.journal}) as they happen, so saving only costs as
+ * much as the number of changes, and the journal is replayed on top of the snapshot when the tasks are
+ * loaded again. Journal writes happen on the writer thread of a {@link SaveScheduler}, so commands do
+ * not wait for the disk, and a {@link Compactor} folds the journal back into the snapshot in the
+ * background. The snapshot may be stored in any of the {@link SnapshotFormat}s; the format of an
+ * existing file is detected on load and kept when it is rewritten.
+ * </p>
+ */
+public class JournalBackend implements StorageBackend {
+    private final Path dataFile;
+    private final Journal journal;
+    private final Compactor compactor;
+    private final SaveScheduler saveScheduler;
+    private int size;
+
+    /**
+     * Constructs a {@code JournalBackend} for the given data file.
+     * @param dataFile The path of the snapshot file. The journal is kept next to it.
+     * @param autosavePolicy When changes are written to disk without an explicit save.
+     */
+    public JournalBackend(Path dataFile, AutosavePolicy autosavePolicy) {
+        this.dataFile = dataFile;
+        this.journal = new Journal(Path.of(dataFile + ".journal"));
+        this.compactor = new Compactor(dataFile, journal);
+        this.saveScheduler = new SaveScheduler(journal, compactor, autosavePolicy);
+    }
+
+    /**
+     * Loads the snapshot and replays the journal on top of it.
+     * If the file does not exist, returns an empty task list.
+     */
+    @Override
+    public ArrayList<Task> loadAll() {
+        ArrayList<Task> prevTaskList = new ArrayList<>();
+        prepareSnapshot();
+
+        if (!Files.exists(dataFile)) {
+            System.out.println("You have not saved any information previously. Starting a new list...");
+        } else {
+            try {
+                prevTaskList = SnapshotFormat.detect(dataFile).read(dataFile);
+            } catch (IOException e) {
+                System.out.println("Error loading tasks. Starting a new list...");
+            }
+        }
+
+        replayJournals(prevTaskList);
+        return prevTaskList;
+    }
+
+    /**
+     * Only text snapshots can be loaded lazily; snapshots in other formats are loaded eagerly.
+     */
+    @Override
+    public List<Task> loadAllLazily(int cacheSize) {
+        prepareSnapshot();
+        try {
+            if (!Files.exists(dataFile) || !(SnapshotFormat.detect(dataFile) instanceof TextSnapshot)) {
+                return loadAll();
+            }
+            List<Task> prevTaskList = LazyTaskList.open(dataFile, cacheSize);
+            replayJournals(prevTaskList);
+            return prevTaskList;
+        } catch (IOException e) {
+            System.out.println("Error indexing saved tasks. Loading them all now...");
+            return loadAll();
+        }
+    }
+
+    /**
+     * Finishes any interrupted save, making sure the snapshot file is complete.
+     */
+    private void prepareSnapshot() {
+        dataFile.toAbsolutePath().getParent().toFile().mkdirs();
+        try {
+            compactor.recover();
+        } catch (IOException e) {
+            System.out.println("Error recovering an interrupted save. Some changes might be missing.");
+        }
+    }
+
+    /**
+     * Replays the journals on top of the tasks read from the snapshot, and starts background compaction.
+     */
+    private void replayJournals(List<Task> prevTaskList) {
+        try {
+            new Journal(compactor.getFoldingJournal()).replay(prevTaskList);
+            journal.replay(prevTaskList);
+            journal.open();
+        } catch (IOException e) {
+            System.out.println("Error reading the journal. Recent changes might be missing.");
+        }
+        size = prevTaskList.size();
+        compactor.start();
+    }
+
+    /**
+     * Saves {@code tasks} as a new snapshot and clears the journal, since the new snapshot already
+     * contains every journaled change. The file is replaced atomically, so it is never left half-written.
+     */
+    @Override
+    public void saveAll(List<Task> tasks) throws IOException {
+        dataFile.toAbsolutePath().getParent().toFile().mkdirs();
+        journal.endGroup();
+        journal.commit();
+        compactor.saveSnapshot(tasks);
+        size = tasks.size();
+    }
+
+    /**
+     * Journals the replacement like any other change, so it is written on the writer thread and can
+     * still be folded into a fixed-width snapshot in place.
+     */
+    @Override
+    public void replaceAll(List<Task> tasks) {
+        journal.recordReplaceAll(tasks);
+        size = tasks.size();
+        saveScheduler.recordMutation();
+    }
+
+    @Override
+    public void upsert(int index, Task task) {
+        if (index == size) {
+            journal.recordAdd(task);
+            size++;
+        } else {
+            journal.recordReplace(index, task);
+        }
+        saveScheduler.recordMutation();
+    }
+
+    @Override
+    public void insert(int index, Task task) {
+        journal.recordInsert(index, task);
+        size++;
+        saveScheduler.recordMutation();
+    }
+
+    /**
+     * Journals just the new status, which is much shorter than the whole task.
+     */
+    @Override
+    public void updateStatus(int index, Task task) {
+        journal.recordStatus(index, task.taskStatus());
+        saveScheduler.recordMutation();
+    }
+
+    @Override
+    public void delete(int index) {
+        journal.recordDelete(index);
+        size--;
+        saveScheduler.recordMutation();
+    }
+
+    /**
+     * Returns immediately; the changes are written in the background according to the autosave policy.
+     */
+    @Override
+    public CompletableFuture<Boolean> commit() {
+        return saveScheduler.commandFinished();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> flush() {
+        return saveScheduler.requestSave();
+    }
+
+    /**
+     * Stops the writer thread once every change has been written.
+     */
+    @Override
+    public CompletableFuture<Boolean> close() {
+        return saveScheduler.shutdown();
+    }
+}
@@ -0,0 +1,321 @@
+package eunai.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import eunai.index.PositionIndex;
+import eunai.task.Task;
+
+/**
+ * Keeps the task list in an embedded {@link KeyValueStore}, one entry per task.
+ * <p>
+ * Each task is stored under a key that increases in list order, so the store itself keeps the tasks
+ * in order. Adding, changing or deleting a task writes just that task's entry. Changes are forced to
+ * disk once per command by {@link #commit()}.
+ * </p>
+ * <p>
+ * The key of every task is kept in memory by slot, and a {@link PositionIndex} maps list indices to
+ * slots, so deleting a task leaves its slot empty instead of moving the keys after it. The empty slots
+ * are dropped in one pass once they outnumber the tasks.
+ * </p>
+ * <p>
+ * {@link #loadAllLazily(int)} reads each value only to check it, and parses a task from the store when it
+ * is first used. {@link #saveAll(List)} renumbers every key, and renumbers the lazily loaded list with it.
+ * </p>
+ */
+public class KeyValueBackend implements StorageBackend {
+    private static final int MIN_SLOTS_TO_COMPACT = 64;
+
+    private final Path file;
+    private KeyValueStore store;
+    // The key of the task in each slot, in increasing order
+    private long[] keys = new long[16];
+    private final PositionIndex positions = new PositionIndex(0);
+    private long nextKey;
+    // The list handed out by loadAllLazily, which reads its tasks by key
+    private LazyTaskList lazyTasks;
+
+    /**
+     * Constructs a {@code KeyValueBackend} that keeps its store in the given file.
+     * @param file The path of the store's log file.
+     */
+    public KeyValueBackend(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized ArrayList<Task> loadAll() {
+        ArrayList<Task> tasks = new ArrayList<>();
+        try {
+            openStore();
+            for (int slot = 0; slot < positions.getSlotCount(); slot++) {
+                Task task = TaskParser.parseTask(new String(store.get(keys[slot]), StandardCharsets.UTF_8));
+                if (task == null) {
+                    System.out.println("Skipping a damaged task in " + file);
+                    store.remove(keys[slot]);
+                    positions.remove(slot);
+                    continue;
+                }
+                tasks.add(task);
+            }
+            compactIfSparse();
+        } catch (IOException e) {
+            System.out.println("Error loading tasks. Starting a new list...");
+        }
+        return tasks;
+    }
+
+    /**
+     * Reads only the key of every task and whether it is done. Damaged entries are dropped, as in
+     * {@link #loadAll()}, so both lists hold the same tasks.
+     */
+    @Override
+    public synchronized List<Task> loadAllLazily(int cacheSize) {
+        LazyTaskList tasks = new LazyTaskList(this::readTask, cacheSize);
+        lazyTasks = tasks;
+        try {
+            openStore();
+            for (int slot = 0; slot < positions.getSlotCount(); slot++) {
+                byte[] value = store.get(keys[slot]);
+                if (!TaskParser.isValidTaskLine(value, value.length)) {
+                    System.out.println("Skipping a damaged task in " + file);
+                    store.remove(keys[slot]);
+                    positions.remove(slot);
+                    continue;
+                }
+                tasks.addRecord(keys[slot], TaskParser.isDoneTaskLine(value, value.length));
+            }
+            compactIfSparse();
+        } catch (IOException e) {
+            System.out.println("Error loading tasks. Starting a new list...");
+        }
+        return tasks;
+    }
+
+    private synchronized Task readTask(long key) throws IOException {
+        if (store == null) {
+            throw new IOException("The store is closed");
+        }
+        return TaskParser.parseTask(new String(store.get(key), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Opens the store if needed and reads the keys of every task.
+     */
+    private void openStore() throws IOException {
+        if (store == null) {
+            file.toAbsolutePath().getParent().toFile().mkdirs();
+            store = KeyValueStore.open(file);
+        }
+        positions.reset(0);
+        for (long key : store.keys()) {
+            addKey(key);
+        }
+        int slotCount = positions.getSlotCount();
+        nextKey = slotCount == 0 ? 0 : keys[slotCount - 1] + 1;
+    }
+
+    @Override
+    public synchronized void saveAll(List<Task> tasks) throws IOException {
+        if (store == null) {
+            openStore();
+        }
+        List<byte[]> values = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            values.add(encode(task));
+        }
+        long[] oldKeys = liveKeys();
+        store.replaceAll(values);
+        openStore();
+        renumberLazyTasks(oldKeys, -1);
+    }
+
+    @Override
+    public synchronized void upsert(int index, Task task) {
+        try {
+            if (index == positions.size()) {
+                addKey(nextKey++);
+            }
+            store.put(keys[positions.slotOf(index)], encode(task));
+        } catch (IOException e) {
+            System.out.println("Error saving a task. Your changes might not be saved.");
+        }
+    }
+
+    /**
+     * Stores the task under a key between the keys of its neighbours. The empty slot the task was deleted
+     * from is reused if it is still there; otherwise the keys are moved along in memory to make room, which
+     * takes O(n) time. If the neighbours' keys are consecutive, as after {@link #saveAll(List)}, every task
+     * is stored again under new keys.
+     */
+    @Override
+    public synchronized void insert(int index, Task task) {
+        if (index == positions.size()) {
+            upsert(index, task);
+            return;
+        }
+        int followingSlot = positions.slotOf(index);
+        long previousKey = index == 0 ? -1 : keys[positions.slotOf(index - 1)];
+        long followingKey = keys[followingSlot];
+        try {
+            if (followingKey - previousKey < 2) {
+                rewriteWithInserted(index, task);
+                return;
+            }
+            int slot = followingSlot - 1;
+            if (slot >= 0 && !positions.isLive(slot)) {
+                // An empty slot keeps its key, which lies between the keys of its neighbours
+                positions.revive(slot);
+            } else {
+                slot = insertKey(index, previousKey + (followingKey - previousKey) / 2);
+            }
+            store.put(keys[slot], encode(task));
+        } catch (IOException e) {
+            System.out.println("Error saving a task. Your changes might not be saved.");
+        }
+    }
+
+    /**
+     * Drops the empty slots and puts {@code key} in the slot at {@code index}.
+     * @return The slot of the new key.
+     */
+    private int insertKey(int index, long key) {
+        long[] liveKeys = liveKeys();
+        keys = new long[Math.max(16, liveKeys.length * 2)];
+        System.arraycopy(liveKeys, 0, keys, 0, index);
+        keys[index] = key;
+        System.arraycopy(liveKeys, index, keys, index + 1, liveKeys.length - index);
+        positions.reset(liveKeys.length + 1);
+        return index;
+    }
+
+    /**
+     * Stores every task again under the keys 0, 1, 2 and so on, with {@code task} inserted at {@code index}.
+     */
+    private void rewriteWithInserted(int index, Task task) throws IOException {
+        long[] oldKeys = liveKeys();
+        List<byte[]> values = new ArrayList<>(oldKeys.length + 1);
+        for (long key : oldKeys) {
+            values.add(store.get(key));
+        }
+        values.add(index, encode(task));
+        store.replaceAll(values);
+        openStore();
+        renumberLazyTasks(oldKeys, index);
+    }
+
+    /**
+     * Tells the lazily loaded list, if any, that the tasks under {@code oldKeys} are now stored under the
+     * keys 0, 1, 2 and so on, skipping the key {@code insertedIndex} of a task inserted among them.
+     */
+    private void renumberLazyTasks(long[] oldKeys, int insertedIndex) {
+        if (lazyTasks == null) {
+            return;
+        }
+        long[] newKeys = new long[oldKeys.length];
+        for (int i = 0; i < newKeys.length; i++) {
+            newKeys[i] = insertedIndex >= 0 && i >= insertedIndex ? i + 1 : i;
+        }
+        lazyTasks.renumber(oldKeys, newKeys);
+    }
+
+    @Override
+    public synchronized void delete(int index) {
+        int slot = positions.slotOf(index);
+        try {
+            store.remove(keys[slot]);
+        } catch (IOException e) {
+            System.out.println("Error deleting a task. Your changes might not be saved.");
+        }
+        positions.remove(slot);
+        compactIfSparse();
+    }
+
+    /**
+     * Forces this command's changes to disk before returning.
+     */
+    @Override
+    public synchronized CompletableFuture<Boolean> commit() {
+        return CompletableFuture.completedFuture(sync());
+    }
+
+    @Override
+    public synchronized CompletableFuture<Boolean> flush() {
+        return CompletableFuture.completedFuture(sync());
+    }
+
+    @Override
+    public synchronized CompletableFuture<Boolean> close() {
+        boolean isSaved = sync();
+        try {
+            if (store != null) {
+                store.close();
+                store = null;
+            }
+        } catch (IOException e) {
+            isSaved = false;
+        }
+        return CompletableFuture.completedFuture(isSaved);
+    }
+
+    private boolean sync() {
+        if (store == null) {
+            return true;
+        }
+        try {
+            store.sync();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static byte[] encode(Task task) {
+        return task.toFileFormat().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the keys of the tasks in list order.
+     */
+    private long[] liveKeys() {
+        long[] liveKeys = new long[positions.size()];
+        int count = 0;
+        for (int slot = 0; slot < positions.getSlotCount(); slot++) {
+            if (positions.isLive(slot)) {
+                liveKeys[count++] = keys[slot];
+            }
+        }
+        return liveKeys;
+    }
+
+    private void addKey(long key) {
+        int slot = positions.append();
+        if (slot == keys.length) {
+            keys = Arrays.copyOf(keys, slot * 2);
+        }
+        keys[slot] = key;
+    }
+
+    /**
+     * Drops the empty slots once they outnumber the live ones, spreading the cost of the pass over the
+     * deletions that emptied them.
+     */
+    private void compactIfSparse() {
+        int emptySlots = positions.getSlotCount() - positions.size();
+        if (emptySlots < MIN_SLOTS_TO_COMPACT || emptySlots <= positions.size()) {
+            return;
+        }
+        int kept = 0;
+        for (int slot = 0; slot < positions.getSlotCount(); slot++) {
+            if (positions.isLive(slot)) {
+                keys[kept++] = keys[slot];
+            }
+        }
+        positions.reset(kept);
+    }
+}
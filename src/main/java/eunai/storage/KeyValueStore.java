@@ -0,0 +1,232 @@
+package eunai.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Represents an embedded key-value store in a single append-only log file, ordered by key.
+ * <p>
+ * Every put or remove appends one record to the log, and an in-memory {@link TreeMap} from each key
+ * to the offset of its latest record makes puts, removes and lookups O(log n). Values are only read
+ * from disk when they are looked up. Superseded records are garbage; once they take up more than
+ * half of the log, {@link #sync()} rewrites the log with only the live records.
+ * </p>
+ * <pre>
+ * record:  int CRC32C of the rest of the record, long key, int value length (-1 for a removal),
+ *          value bytes
+ * </pre>
+ * <p>
+ * A record that was only partly written when the application stopped fails its checksum and is cut
+ * off the end of the log when the store is opened.
+ * </p>
+ */
+public class KeyValueStore {
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int REMOVED = -1;
+    private static final long MIN_COMPACTION_SIZE = 1L << 20;
+
+    private final Path file;
+    private final TreeMap<Long, Long> offsets = new TreeMap<>();
+    private FileChannel channel;
+    private long end;
+    private long liveBytes;
+
+    private KeyValueStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the store in the given file, creating it if it does not exist, and indexes every record.
+     * @param file The path of the log file.
+     * @return The opened store.
+     */
+    public static KeyValueStore open(Path file) throws IOException {
+        KeyValueStore store = new KeyValueStore(file);
+        store.openLog();
+        return store;
+    }
+
+    private void openLog() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        offsets.clear();
+        liveBytes = 0;
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (position + RECORD_HEADER_SIZE <= size) {
+            readFully(header.clear(), position);
+            long key = header.getLong(4);
+            int length = header.getInt(12);
+            long recordSize = RECORD_HEADER_SIZE + Math.max(length, 0);
+            if (length < REMOVED || position + recordSize > size) {
+                break;
+            }
+            ByteBuffer value = ByteBuffer.allocate(Math.max(length, 0));
+            readFully(value, position + RECORD_HEADER_SIZE);
+            if (checksum(key, length, value.array()) != header.getInt(0)) {
+                break;
+            }
+            Long previous = length == REMOVED ? offsets.remove(key) : offsets.put(key, position);
+            if (previous != null) {
+                liveBytes -= recordSizeAt(previous);
+            }
+            if (length != REMOVED) {
+                liveBytes += recordSize;
+            }
+            position += recordSize;
+        }
+        // Anything after the last intact record is a torn write
+        channel.truncate(position);
+        end = position;
+    }
+
+    /**
+     * Returns the value stored under {@code key}, or null if there is none.
+     */
+    public synchronized byte[] get(long key) throws IOException {
+        Long offset = offsets.get(key);
+        if (offset == null) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(header, offset);
+        ByteBuffer value = ByteBuffer.allocate(header.getInt(12));
+        readFully(value, offset + RECORD_HEADER_SIZE);
+        return value.array();
+    }
+
+    /**
+     * Stores {@code value} under {@code key}, replacing any previous value.
+     * The record is written to the file, but only guaranteed to be on disk after {@link #sync()}.
+     */
+    public synchronized void put(long key, byte[] value) throws IOException {
+        long offset = append(key, value.length, value);
+        Long previous = offsets.put(key, offset);
+        if (previous != null) {
+            liveBytes -= recordSizeAt(previous);
+        }
+        liveBytes += RECORD_HEADER_SIZE + value.length;
+    }
+
+    /**
+     * Removes the value stored under {@code key}, if any.
+     * The removal is only guaranteed to be on disk after {@link #sync()}.
+     */
+    public synchronized void remove(long key) throws IOException {
+        Long previous = offsets.remove(key);
+        if (previous == null) {
+            return;
+        }
+        liveBytes -= recordSizeAt(previous);
+        append(key, REMOVED, new byte[0]);
+    }
+
+    /**
+     * Returns a read-only view of every key in the store, in ascending order.
+     */
+    public synchronized NavigableSet<Long> keys() {
+        return Collections.unmodifiableNavigableSet(offsets.navigableKeySet());
+    }
+
+    /**
+     * Forces every record written so far to disk, first rewriting the log if it is mostly garbage.
+     */
+    public synchronized void sync() throws IOException {
+        if (end > MIN_COMPACTION_SIZE && liveBytes < end / 2) {
+            compact();
+        } else {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Replaces the whole contents of the store with {@code values}, stored under the keys 0, 1, 2 and so on.
+     * The new log is written to a temporary file and renamed over the old one, so the store is never
+     * left half-replaced.
+     * @param values The values to store, in key order.
+     */
+    public synchronized void replaceAll(List<byte[]> values) throws IOException {
+        KeyValueStore replacement = startRewrite();
+        for (int i = 0; i < values.size(); i++) {
+            replacement.put(i, values.get(i));
+        }
+        finishRewrite(replacement);
+    }
+
+    /**
+     * Rewrites the log with only the latest record of every key.
+     */
+    private void compact() throws IOException {
+        KeyValueStore replacement = startRewrite();
+        for (long key : offsets.keySet()) {
+            replacement.put(key, get(key));
+        }
+        finishRewrite(replacement);
+    }
+
+    private KeyValueStore startRewrite() throws IOException {
+        Path tempFile = Path.of(file + ".tmp");
+        Files.deleteIfExists(tempFile);
+        return KeyValueStore.open(tempFile);
+    }
+
+    /**
+     * Forces the rewritten log to disk and renames it over this store's log.
+     */
+    private void finishRewrite(KeyValueStore replacement) throws IOException {
+        replacement.channel.force(true);
+        replacement.close();
+        channel.close();
+        Files.move(replacement.file, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        openLog();
+    }
+
+    /**
+     * Closes the log file.
+     */
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private long append(long key, int length, byte[] value) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + value.length);
+        record.putInt(checksum(key, length, value)).putLong(key).putInt(length).put(value).flip();
+        long offset = end;
+        while (record.hasRemaining()) {
+            end += channel.write(record, end);
+        }
+        return offset;
+    }
+
+    private long recordSizeAt(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(length, offset + 12);
+        return RECORD_HEADER_SIZE + length.getInt(0);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of key-value log");
+            }
+        }
+    }
+
+    private static int checksum(long key, int length, byte[] value) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(12).putLong(key).putInt(length).flip());
+        crc.update(value);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,325 @@
+package eunai.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import eunai.index.IntList;
+import eunai.task.BulkRemovable;
+import eunai.task.StatusReadable;
+import eunai.task.Task;
+
+/**
+ * Represents a task list backed by saved records, where tasks are only parsed when they are first used.
+ * <p>
+ * Loading only records where each valid task is saved: the offset of its line in a text snapshot (see
+ * {@link #open(Path, int)}), or its key in a {@link KeyValueStore}. {@link #get(int)} parses the task on
+ * demand and keeps the most recently used tasks in a bounded cache. Tasks that are added or replaced through
+ * {@link #set(int, Task)} (which {@code TaskList} does after every change) are kept in memory for good,
+ * so changes are never lost when the cache evicts a task. The places of removed tasks in memory are
+ * reused by the next ones kept. Whether each saved task is done is read while loading, so
+ * {@link #isDone(int)} never parses a task.
+ * </p>
+ * <p>
+ * A text snapshot is memory-mapped read-only and never copied. Compaction replaces the snapshot by renaming
+ * a new file over it, which leaves the mapped file in place until the list is closed. Windows does not
+ * allow that rename while the file is mapped; the {@link Compactor} then keeps the new snapshot next to
+ * the data file until the next start.
+ * </p>
+ */
+public class LazyTaskList extends AbstractList<Task> implements RandomAccess, BulkRemovable, StatusReadable {
+    /** The default number of parsed tasks kept in the cache. */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    // The record of a task that is no longer saved; such a task is never read again
+    private static final long NO_RECORD = Long.MAX_VALUE / 2;
+
+    /**
+     * Reads the task saved in a record, such as a line of a file or an entry of a store.
+     */
+    interface RecordReader {
+        Task read(long record) throws IOException;
+    }
+
+    private final Map<Long, Task> cache;
+    private final ArrayList<Task> resident = new ArrayList<>();
+    // The indices in resident whose task was removed, free to be reused
+    private final IntList freeResidents = new IntList();
+    private RecordReader reader;
+    // A handle >= 0 is twice the record of a saved task, plus 1 if the task is done;
+    // a handle < 0 is -(index in resident) - 1
+    private long[] handles = new long[16];
+    private int size;
+
+    /**
+     * Constructs an empty {@code LazyTaskList}. The saved tasks are added with {@link #addRecord(long, boolean)}.
+     * @param reader Reads the saved task in a record.
+     * @param cacheSize The number of parsed tasks to keep in the cache.
+     */
+    LazyTaskList(RecordReader reader, int cacheSize) {
+        this.reader = reader;
+        this.cache = new LinkedHashMap<>(cacheSize * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Task> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Maps a text snapshot and records where each task line starts, without building any of the tasks.
+     * Lines that {@link TaskParser#parseTask(String)} rejects are skipped, as when the file is loaded eagerly.
+     * @param file The text snapshot file.
+     * @param cacheSize The number of parsed tasks to keep in the cache.
+     * @return A list over the tasks in the file.
+     */
+    public static LazyTaskList open(Path file, int cacheSize) throws IOException {
+        MappedTextFile text = MappedTextFile.map(file);
+        LazyTaskList tasks = new LazyTaskList(text, cacheSize);
+        text.scan(tasks);
+        return tasks;
+    }
+
+    /**
+     * Appends a saved task that is read from {@code record} when it is first used.
+     * @param record The record of the task, at least 0.
+     * @param isDone Whether the saved task is done.
+     */
+    void addRecord(long record, boolean isDone) {
+        if (size == handles.length) {
+            handles = Arrays.copyOf(handles, size * 2);
+        }
+        handles[size++] = record * 2 + (isDone ? 1 : 0);
+        modCount++;
+    }
+
+    /**
+     * Follows the saved tasks after their records were renumbered, as when a store rewrites every key.
+     * A saved task whose record is not in {@code oldRecords} is no longer saved and must not be read again.
+     * @param oldRecords The old record of each saved task, in ascending order.
+     * @param newRecords The new record of the task in the same place of {@code oldRecords}.
+     */
+    void renumber(long[] oldRecords, long[] newRecords) {
+        for (int i = 0; i < size; i++) {
+            long handle = handles[i];
+            if (handle >= 0) {
+                int found = Arrays.binarySearch(oldRecords, handle / 2);
+                handles[i] = (found >= 0 ? newRecords[found] : NO_RECORD) * 2 + (handle & 1);
+            }
+        }
+        cache.clear();
+    }
+
+    @Override
+    public Task get(int index) {
+        long handle = handles[checkIndex(index, size)];
+        if (handle < 0) {
+            return resident.get((int) (-handle - 1));
+        }
+        return cache.computeIfAbsent(handle, this::materialize);
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        Task previous = get(index);
+        long handle = handles[index];
+        if (handle < 0) {
+            resident.set((int) (-handle - 1), task);
+        } else {
+            cache.remove(handle);
+            handles[index] = pin(task);
+        }
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        checkIndex(index, size + 1);
+        if (size == handles.length) {
+            handles = Arrays.copyOf(handles, Math.max(16, size * 2));
+        }
+        System.arraycopy(handles, index, handles, index + 1, size - index);
+        handles[index] = pin(task);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        release(handles[index]);
+        System.arraycopy(handles, index + 1, handles, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void removeAll(BitSet indices) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!indices.get(i)) {
+                handles[kept++] = handles[i];
+            } else {
+                release(handles[i]);
+            }
+        }
+        size = kept;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isDone(int index) {
+        long handle = handles[checkIndex(index, size)];
+        return handle < 0 ? resident.get((int) (-handle - 1)).taskStatus() : (handle & 1) == 1;
+    }
+
+    /**
+     * Returns the number of tasks that are currently parsed and held in memory.
+     */
+    public int getMaterializedCount() {
+        return cache.size() + (int) resident.stream().filter(task -> task != null).count();
+    }
+
+    private long pin(Task task) {
+        if (freeResidents.isEmpty()) {
+            resident.add(task);
+            return -resident.size();
+        }
+        int free = freeResidents.removeAt(freeResidents.size() - 1);
+        resident.set(free, task);
+        return -free - 1;
+    }
+
+    /**
+     * Forgets the task behind a handle that is no longer in the list.
+     */
+    private void release(long handle) {
+        if (handle < 0) {
+            resident.set((int) (-handle - 1), null);
+            freeResidents.add((int) (-handle - 1));
+        } else {
+            cache.remove(handle);
+        }
+    }
+
+    /**
+     * Parses the saved task that {@code handle} points to. Its record was checked when it was loaded.
+     */
+    private Task materialize(long handle) {
+        if (reader == null) {
+            throw new IllegalStateException("The saved tasks behind this list have been closed");
+        }
+        try {
+            return reader.read(handle / 2);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int checkIndex(int index, int length) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+        }
+        return index;
+    }
+
+    /**
+     * Lets go of the saved tasks. Tasks that are not yet parsed can no longer be read.
+     * A mapped snapshot is released once it is garbage collected.
+     */
+    public void close() {
+        reader = null;
+        cache.clear();
+    }
+
+    /**
+     * A text snapshot, memory-mapped read-only, whose records are the offsets at which task lines start.
+     */
+    private static class MappedTextFile implements RecordReader {
+        private static final int MAP_CHUNK_BITS = 30;
+        private static final int MAP_CHUNK_SIZE = 1 << MAP_CHUNK_BITS;
+
+        // The file, mapped in pieces of MAP_CHUNK_SIZE bytes since a single mapping is limited to 2GB
+        private final MappedByteBuffer[] chunks;
+        private final long fileSize;
+
+        private MappedTextFile(MappedByteBuffer[] chunks, long fileSize) {
+            this.chunks = chunks;
+            this.fileSize = fileSize;
+        }
+
+        static MappedTextFile map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long fileSize = channel.size();
+                int chunkCount = (int) ((fileSize + MAP_CHUNK_SIZE - 1) >>> MAP_CHUNK_BITS);
+                MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+                for (int i = 0; i < chunks.length; i++) {
+                    long position = (long) i << MAP_CHUNK_BITS;
+                    chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(MAP_CHUNK_SIZE, fileSize - position));
+                }
+                return new MappedTextFile(chunks, fileSize);
+            }
+        }
+
+        /**
+         * Adds every valid task line of the file to {@code tasks}.
+         */
+        void scan(LazyTaskList tasks) {
+            byte[] line = new byte[256];
+            long position = 0;
+            while (position < fileSize) {
+                int length = 0;
+                long lineStart = position;
+                for (byte b; position < fileSize && (b = byteAt(position)) != '\n'; position++) {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length++] = b;
+                }
+                position++;
+                if (length > 0 && line[length - 1] == '\r') {
+                    length--;
+                }
+                if (TaskParser.isValidTaskLine(line, length)) {
+                    tasks.addRecord(lineStart, TaskParser.isDoneTaskLine(line, length));
+                }
+            }
+        }
+
+        @Override
+        public Task read(long record) {
+            long end = record;
+            while (end < fileSize && byteAt(end) != '\n') {
+                end++;
+            }
+            byte[] line = new byte[(int) (end - record)];
+            for (int i = 0; i < line.length; i++) {
+                line[i] = byteAt(record + i);
+            }
+            int length = line.length > 0 && line[line.length - 1] == '\r' ? line.length - 1 : line.length;
+            return TaskParser.parseTask(new String(line, 0, length, StandardCharsets.UTF_8));
+        }
+
+        private byte byteAt(long position) {
+            return chunks[(int) (position >>> MAP_CHUNK_BITS)].get((int) (position & (MAP_CHUNK_SIZE - 1)));
+        }
+    }
+}
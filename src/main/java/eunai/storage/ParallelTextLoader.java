@@ -0,0 +1,202 @@
+package eunai.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import eunai.task.Task;
+
+/**
+ * Loads large text snapshots using every available core.
+ * <p>
+ * The file is memory-mapped and cut into chunks that each end on a line break. The chunks are
+ * parsed in parallel on a {@link ForkJoinPool}, and the results are joined back together in the
+ * original order, so the loaded list is identical to the one a line-by-line read produces.
+ * </p>
+ */
+public class ParallelTextLoader {
+    /** Files smaller than this are not worth splitting up. */
+    public static final long MIN_PARALLEL_SIZE = 4L << 20;
+
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int BOUNDARY_SCAN_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a {@code ParallelTextLoader} that parses on the common fork-join pool.
+     */
+    public ParallelTextLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a {@code ParallelTextLoader} that parses on the given pool.
+     * @param pool The pool to run the parsing tasks on.
+     */
+    public ParallelTextLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Reads every valid task from a text snapshot. Invalid lines are skipped.
+     * @param file The text snapshot file.
+     * @return An {@code ArrayList} of the tasks in the file, in file order.
+     */
+    public ArrayList<Task> load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] boundaries = findChunkBoundaries(channel);
+            List<ArrayList<Task>> chunks;
+            try {
+                chunks = pool.invoke(new ParseChunks(channel, boundaries, 0, boundaries.length - 1));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int total = 0;
+            for (ArrayList<Task> chunk : chunks) {
+                total += chunk.size();
+            }
+            ArrayList<Task> tasks = new ArrayList<>(total);
+            for (ArrayList<Task> chunk : chunks) {
+                tasks.addAll(chunk);
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Returns the start offsets of every chunk followed by the file size.
+     * Every chunk except the last ends just after a line break.
+     */
+    private long[] findChunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long targetCount = (long) pool.getParallelism() * CHUNKS_PER_THREAD;
+        // Chunks are mapped individually, so they must also fit in a single mapping
+        long chunkSize = Math.min(Math.max(size / targetCount, MIN_CHUNK_SIZE), Integer.MAX_VALUE / 2);
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        long position = chunkSize;
+        while (position < size) {
+            long lineEnd = findLineEnd(channel, position);
+            if (lineEnd >= size) {
+                break;
+            }
+            boundaries.add(lineEnd);
+            position = lineEnd + chunkSize;
+        }
+        boundaries.add(size);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Returns the offset just after the first line break at or after {@code position},
+     * or the file size if there is none.
+     */
+    private long findLineEnd(FileChannel channel, long position) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        while (position < channel.size()) {
+            window.clear();
+            int read = channel.read(window, position);
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return channel.size();
+    }
+
+    /**
+     * Parses every line in the mapped region {@code [start, end)}.
+     */
+    private static ArrayList<Task> parseChunk(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        ArrayList<Task> tasks = new ArrayList<>();
+        byte[] line = new byte[256];
+        int length = 0;
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                addTask(tasks, line, length);
+                length = 0;
+                continue;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[length++] = b;
+        }
+        if (length > 0) {
+            addTask(tasks, line, length);
+        }
+        return tasks;
+    }
+
+    /**
+     * Decodes one line (without its line break) and adds the task it holds, if valid.
+     */
+    private static void addTask(ArrayList<Task> tasks, byte[] line, int length) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        Task task = TaskParser.parseTask(new String(line, 0, length, StandardCharsets.UTF_8));
+        if (task != null) {
+            tasks.add(task);
+        }
+    }
+
+    /**
+     * Parses chunks {@code [from, to)} by splitting the range in half until one chunk is left.
+     * Tasks are only serializable because {@code ForkJoinTask} is; they are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static class ParseChunks extends RecursiveTask<List<ArrayList<Task>>> {
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+        ParseChunks(FileChannel channel, long[] boundaries, int from, int to) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<ArrayList<Task>> compute() {
+            if (to - from <= 1) {
+                List<ArrayList<Task>> result = new ArrayList<>();
+                if (to > from) {
+                    try {
+                        result.add(parseChunk(channel, boundaries[from], boundaries[to]));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            ParseChunks left = new ParseChunks(channel, boundaries, from, middle);
+            ParseChunks right = new ParseChunks(channel, boundaries, middle, to);
+            left.fork();
+            List<ArrayList<Task>> result = new ArrayList<>(right.compute());
+            result.addAll(0, left.join());
+            return result;
+        }
+    }
+}
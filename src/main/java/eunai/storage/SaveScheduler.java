@@ -0,0 +1,150 @@
+package eunai.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Writes journaled changes to disk on a dedicated writer thread, so commands never wait for the disk.
+ * <p>
+ * Save requests that arrive while a write is in progress are coalesced: the next write covers all of
+ * them with a single {@code fsync}, and completes every one of their futures. Writes are triggered
+ * according to an {@link AutosavePolicy}.
+ * </p>
+ */
+public class SaveScheduler {
+    private final Journal journal;
+    private final Compactor compactor;
+    private final AutosavePolicy policy;
+    private final Thread writer;
+    private final List<CompletableFuture<Boolean>> waiting = new ArrayList<>();
+    private int unsavedMutations;
+    private boolean isSaveRequested;
+    private boolean isStopped;
+
+    /**
+     * Constructs a {@code SaveScheduler} and starts its writer thread.
+     * @param journal The journal to commit.
+     * @param compactor The compactor to notify after every write.
+     * @param policy When to write changes without an explicit request.
+     */
+    public SaveScheduler(Journal journal, Compactor compactor, AutosavePolicy policy) {
+        this.journal = journal;
+        this.compactor = compactor;
+        this.policy = policy;
+        this.writer = new Thread(this::runWriter, "eunai-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Counts one change towards the autosave threshold.
+     */
+    public synchronized void recordMutation() {
+        unsavedMutations++;
+    }
+
+    /**
+     * Marks the end of a command. Its changes are saved now if the autosave threshold is reached,
+     * and otherwise with a later write.
+     * @return A future completed with whether the changes were saved once they have been written.
+     */
+    public synchronized CompletableFuture<Boolean> commandFinished() {
+        journal.endGroup();
+        if (isStopped) {
+            return CompletableFuture.completedFuture(write());
+        }
+        CompletableFuture<Boolean> saved = new CompletableFuture<>();
+        waiting.add(saved);
+        if (unsavedMutations >= policy.getMutationThreshold()) {
+            isSaveRequested = true;
+            notifyAll();
+        }
+        return saved;
+    }
+
+    /**
+     * Asks for every change made so far to be written as soon as possible.
+     * @return A future completed with whether the changes were saved once they have been written.
+     */
+    public synchronized CompletableFuture<Boolean> requestSave() {
+        journal.endGroup();
+        if (isStopped) {
+            // The writer thread is gone, so write on the caller's thread instead
+            return CompletableFuture.completedFuture(write());
+        }
+        CompletableFuture<Boolean> saved = new CompletableFuture<>();
+        waiting.add(saved);
+        isSaveRequested = true;
+        notifyAll();
+        return saved;
+    }
+
+    /**
+     * Writes every change made so far, then stops the writer thread.
+     * @return A future completed with whether the changes were saved.
+     */
+    public synchronized CompletableFuture<Boolean> shutdown() {
+        CompletableFuture<Boolean> saved = requestSave();
+        isStopped = true;
+        return saved;
+    }
+
+    /**
+     * Main loop of the writer thread.
+     */
+    private void runWriter() {
+        while (true) {
+            List<CompletableFuture<Boolean>> batch;
+            boolean isLast;
+            synchronized (this) {
+                waitForSaveRequest();
+                batch = new ArrayList<>(waiting);
+                waiting.clear();
+                isSaveRequested = false;
+                unsavedMutations = 0;
+                isLast = isStopped;
+            }
+
+            boolean isSaved = write();
+            for (CompletableFuture<Boolean> saved : batch) {
+                saved.complete(isSaved);
+            }
+            if (isLast) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until a save is requested, the writer is stopped, or the autosave interval has passed.
+     */
+    private void waitForSaveRequest() {
+        long deadline = System.currentTimeMillis() + policy.getIntervalMillis();
+        long remaining = policy.getIntervalMillis();
+        while (!isSaveRequested && !isStopped && remaining > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                isStopped = true;
+                return;
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Commits the journal and lets the compactor check whether it has grown too large.
+     */
+    private boolean write() {
+        try {
+            journal.commit();
+        } catch (IOException e) {
+            System.out.println("Error writing to the journal. Your changes might not be saved.");
+            return false;
+        }
+        compactor.compactIfNeeded();
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package eunai.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import eunai.task.Task;
+
+/**
+ * Converts a task data file between the text and binary snapshot formats.
+ * <p>
+ * Run with {@code java -cp eunAI.jar eunai.storage.SnapshotConverter <source> <target> <text|binary|fixed>}.
+ * The format of the source file is detected automatically. Convert while the application is not running,
+ * and fold the journal first (e.g. by exiting normally), since the journal is not converted.
+ * </p>
+ */
+public class SnapshotConverter {
+
+    /**
+     * Converts the file given in {@code args[0]} to the format named in {@code args[2]},
+     * writing the result to {@code args[1]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.out.println("Usage: SnapshotConverter <source> <target> <text|binary|fixed>");
+            return;
+        }
+        int count = convert(Path.of(args[0]), Path.of(args[1]), formatNamed(args[2]));
+        System.out.println("Converted " + count + " tasks to " + args[1]);
+    }
+
+    /**
+     * Reads the snapshot at {@code source} in whichever format it is stored in, and writes it
+     * to {@code target} in {@code targetFormat}.
+     * @param source The snapshot to convert.
+     * @param target The file to write the converted snapshot to.
+     * @param targetFormat The format to convert to.
+     * @return The number of tasks converted.
+     */
+    public static int convert(Path source, Path target, SnapshotFormat targetFormat) throws IOException {
+        ArrayList<Task> tasks = SnapshotFormat.detect(source).read(source);
+        targetFormat.write(target, tasks);
+        return tasks.size();
+    }
+
+    /**
+     * Returns the snapshot format with the given name, either {@code text}, {@code binary} or {@code fixed}.
+     * @param name The name of the format.
+     * @return The matching format.
+     * @throws IllegalArgumentException If the name is not a known format.
+     */
+    public static SnapshotFormat formatNamed(String name) {
+        switch (name.toLowerCase()) {
+        case "text":
+            return new TextSnapshot();
+        case "binary":
+            return new BinarySnapshot();
+        case "fixed":
+            return new FixedRecordSnapshot();
+        default:
+            throw new IllegalArgumentException("Unknown snapshot format: " + name);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package eunai.storage;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import eunai.task.Task;
+
+/**
+ * Represents a file format that a snapshot of the whole task list can be stored in.
+ */
+public interface SnapshotFormat {
+
+    /**
+     * Reads every valid task from the snapshot file.
+     * @param file The snapshot file.
+     * @return An {@code ArrayList} of the tasks in the file, in order.
+     */
+    ArrayList<Task> read(Path file) throws IOException;
+
+    /**
+     * Writes {@code tasks} to {@code file} and forces the contents to disk before returning.
+     * @param file The file to write, replaced if it exists.
+     * @param tasks The tasks to write.
+     */
+    void write(Path file, List<Task> tasks) throws IOException;
+
+    /**
+     * Writes the changes committed in {@code journal} directly into {@code file} and deletes the journal,
+     * without rewriting the rest of the file. Formats that cannot do this return false and change nothing.
+     * @param file The snapshot file to update.
+     * @param journal The journal of changes made after the snapshot.
+     * @return true if the changes were written and the journal deleted; false if the snapshot must be
+     *     rewritten instead.
+     */
+    default boolean applyInPlace(Path file, Path journal) throws IOException {
+        return false;
+    }
+
+    /**
+     * Finishes or discards an in-place update of {@code file} that was interrupted by a crash.
+     * Must be called before the snapshot is read.
+     * @param file The snapshot file.
+     * @param journal The journal that was being applied to the snapshot.
+     */
+    default void recover(Path file, Path journal) throws IOException {
+    }
+
+    /**
+     * Returns the format of an existing snapshot file by looking at its first bytes.
+     * Files that do not exist or do not start with a binary header are treated as text.
+     * @param file The snapshot file.
+     * @return The format the file is stored in.
+     */
+    static SnapshotFormat detect(Path file) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < Integer.BYTES) {
+            return new TextSnapshot();
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            int magic = new DataInputStream(in).readInt();
+            switch (magic) {
+            case BinarySnapshot.MAGIC:
+                return new BinarySnapshot();
+            case FixedRecordSnapshot.MAGIC:
+                return new FixedRecordSnapshot();
+            default:
+                return new TextSnapshot();
+            }
+        }
+    }
+}
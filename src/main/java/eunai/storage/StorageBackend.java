@@ -0,0 +1,99 @@
+package eunai.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import eunai.task.Task;
+
+/**
+ * Represents a place where the task list is kept between runs.
+ * <p>
+ * Tasks are addressed by their index in the list. A backend receives every change to the list as it
+ * happens through {@link #upsert(int, Task)} and {@link #delete(int)}, and decides itself how and when
+ * those changes reach the disk; {@link #commit()} marks the end of one command's worth of changes.
+ * </p>
+ */
+public interface StorageBackend {
+
+    /**
+     * Loads every saved task, finishing any save that was interrupted by a crash first.
+     * Problems are reported to the user; whatever could be loaded is returned.
+     * @return An {@code ArrayList} of the saved tasks, in order.
+     */
+    ArrayList<Task> loadAll();
+
+    /**
+     * Loads every saved task like {@link #loadAll()}, but may parse tasks only when they are first used.
+     * @param cacheSize The number of parsed tasks to keep in memory, besides tasks that were changed.
+     * @return A list of the saved tasks, in order.
+     */
+    default List<Task> loadAllLazily(int cacheSize) {
+        return loadAll();
+    }
+
+    /**
+     * Replaces everything saved with {@code tasks} and waits until it is on disk.
+     * @param tasks The complete, current list of tasks.
+     */
+    void saveAll(List<Task> tasks) throws IOException;
+
+    /**
+     * Replaces everything saved with {@code tasks}, as an undo that cannot put tasks back one by one does,
+     * without waiting for it to be on disk if the backend can avoid it. By default this is
+     * {@link #saveAll(List)}.
+     * @param tasks The complete, current list of tasks. The list must never change.
+     */
+    default void replaceAll(List<Task> tasks) throws IOException {
+        saveAll(tasks);
+    }
+
+    /**
+     * Replaces the task at {@code index}, or appends it if {@code index} is the number of saved tasks.
+     * @param index The index of the task.
+     * @param task The task to save at that index.
+     */
+    void upsert(int index, Task task);
+
+    /**
+     * Inserts a task at {@code index}, moving the tasks from that index on down by one.
+     * @param index The index of the task, at most the number of saved tasks.
+     * @param task The task to save at that index.
+     */
+    void insert(int index, Task task);
+
+    /**
+     * Saves a change in the completion status of the task at {@code index}, which is all that changed.
+     * By default the whole task is saved again through {@link #upsert(int, Task)}.
+     * @param index The index of the task.
+     * @param task The task, with its new completion status.
+     */
+    default void updateStatus(int index, Task task) {
+        upsert(index, task);
+    }
+
+    /**
+     * Deletes the task at {@code index}, moving the tasks after it up by one.
+     * @param index The index of the task.
+     */
+    void delete(int index);
+
+    /**
+     * Marks the end of a command, so that its changes are saved together.
+     * @return A future completed with whether the changes are safely on disk.
+     */
+    CompletableFuture<Boolean> commit();
+
+    /**
+     * Writes every change made so far as soon as possible.
+     * @return A future completed with whether the changes are safely on disk.
+     */
+    CompletableFuture<Boolean> flush();
+
+    /**
+     * Writes every change made so far and releases any files and threads held by the backend.
+     * @return A future completed with whether the changes are safely on disk.
+     */
+    CompletableFuture<Boolean> close();
+}
@@ -0,0 +1,238 @@
+package eunai.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+
+import eunai.DateParser;
+import eunai.task.Deadline;
+import eunai.task.Event;
+import eunai.task.Task;
+import eunai.task.ToDo;
+
+/**
+ * Parses lines of the pipe-delimited task file format back into {@code Task} objects.
+ * The format is the one produced by {@link Task#toFileFormat()}, e.g. {@code D | 0 | return book | 2019-12-02T00:00}.
+ */
+public class TaskParser {
+    private static final String SEPARATOR = " | ";
+    // Only the type, status, description and up to two dates are ever read from a line
+    private static final int MAX_FIELDS = 5;
+
+    /**
+     * Parses a single line from the file into a {@code Task} object.
+     * @param line The line from the file.
+     * @return The corresponding {@code Task} object, or null if invalid format.
+     */
+    public static Task parseTask(String line) {
+        String[] splitParts = splitTaskLine(line);
+        if (splitParts == null) {
+            return null;
+        }
+        return createTaskFromParts(splitParts, line);
+    }
+
+    /**
+     * Returns whether {@link #parseTask(String)} accepts a UTF-8 encoded line, without building the task.
+     * Dates written in the ISO format of {@link Task#toFileFormat()} are checked digit by digit; other
+     * dates go through the same parsing as in {@code parseTask}.
+     * @param line The bytes of the line, without its line break.
+     * @param length The number of bytes of {@code line} in use.
+     * @return true if {@code parseTask} returns a task for the line.
+     */
+    static boolean isValidTaskLine(byte[] line, int length) {
+        int[] starts = new int[MAX_FIELDS];
+        int[] ends = new int[MAX_FIELDS];
+        int fields = 0;
+        int lastNonEmpty = -1;
+        int start = 0;
+        while (true) {
+            int separator = indexOfSeparator(line, start, length);
+            int end = separator < 0 ? length : separator;
+            if (fields < MAX_FIELDS) {
+                starts[fields] = start;
+                ends[fields] = end;
+            }
+            if (end > start) {
+                lastNonEmpty = fields;
+            }
+            fields++;
+            if (separator < 0) {
+                break;
+            }
+            start = separator + SEPARATOR.length();
+        }
+        // Trailing empty fields are dropped, as in splitFields
+        fields = lastNonEmpty + 1;
+        if (fields < 3 || ends[0] - starts[0] != 1) {
+            return false;
+        }
+        switch (line[starts[0]]) {
+        case 'T':
+            return true;
+        case 'D':
+            return fields >= 4 && isValidDate(line, starts[3], ends[3]);
+        case 'E':
+            return fields >= 5 && isValidDate(line, starts[3], ends[3]) && isValidDate(line, starts[4], ends[4]);
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether a line that {@link #isValidTaskLine(byte[], int)} accepts holds a done task,
+     * which is when its status is exactly {@code 1}.
+     */
+    static boolean isDoneTaskLine(byte[] line, int length) {
+        return length >= 8 && line[4] == '1' && line[5] == ' ' && line[6] == '|' && line[7] == ' ';
+    }
+
+    private static int indexOfSeparator(byte[] line, int from, int length) {
+        for (int i = from; i + SEPARATOR.length() <= length; i++) {
+            if (line[i] == ' ' && line[i + 1] == '|' && line[i + 2] == ' ') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isValidDate(byte[] line, int start, int end) {
+        if (isIsoDateTime(line, start, end - start)) {
+            return true;
+        }
+        try {
+            parseStoredDate(new String(line, start, end - start, StandardCharsets.UTF_8));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether the bytes hold a valid {@code yyyy-MM-ddTHH:mm} or {@code yyyy-MM-ddTHH:mm:ss} date.
+     */
+    private static boolean isIsoDateTime(byte[] line, int start, int length) {
+        if (length != 16 && length != 19) {
+            return false;
+        }
+        if (line[start + 4] != '-' || line[start + 7] != '-' || line[start + 10] != 'T' || line[start + 13] != ':'
+                || (length == 19 && line[start + 16] != ':')) {
+            return false;
+        }
+        int year = digits(line, start, 4);
+        int month = digits(line, start + 5, 2);
+        int day = digits(line, start + 8, 2);
+        int hour = digits(line, start + 11, 2);
+        int minute = digits(line, start + 14, 2);
+        int second = length == 19 ? digits(line, start + 17, 2) : 0;
+        if (year < 0 || month < 1 || month > 12 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59) {
+            return false;
+        }
+        return day >= 1 && day <= YearMonth.of(year, month).lengthOfMonth();
+    }
+
+    /**
+     * Returns the value of {@code count} decimal digits, or -1 if any of them is not a digit.
+     */
+    private static int digits(byte[] line, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            if (line[i] < '0' || line[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + line[i] - '0';
+        }
+        return value;
+    }
+
+    /**
+     * Splits the line into an array of parts and checks basic validity.
+     */
+    private static String[] splitTaskLine(String line) {
+        String[] splitParts = splitFields(line);
+        if (splitParts.length < 3) {
+            System.out.println("Skipping invalid task format: " + line);
+            return null;
+        }
+        return splitParts;
+    }
+
+    /**
+     * Splits the line on {@code " | "} like {@code line.split(" \\| ")} does, including dropping
+     * trailing empty parts, but without compiling and running a regex for every line.
+     */
+    private static String[] splitFields(String line) {
+        ArrayList<String> parts = new ArrayList<>(5);
+        int start = 0;
+        int separator;
+        while ((separator = line.indexOf(SEPARATOR, start)) >= 0) {
+            parts.add(line.substring(start, separator));
+            start = separator + SEPARATOR.length();
+        }
+        parts.add(line.substring(start));
+        while (!parts.isEmpty() && parts.get(parts.size() - 1).isEmpty()) {
+            parts.remove(parts.size() - 1);
+        }
+        return parts.toArray(new String[0]);
+    }
+
+    /**
+     * Creates a {@code Task} from the parts array based on task type.
+     */
+    private static Task createTaskFromParts(String[] splitParts, String originalLine) {
+        String taskType = splitParts[0];
+        boolean taskIsDone = splitParts[1].equals("1");
+        String taskDescription = splitParts[2];
+
+        try {
+            switch (taskType) {
+            case "T":
+                return new ToDo(taskDescription, taskIsDone);
+            case "D":
+                return createDeadline(splitParts, taskDescription, taskIsDone);
+            case "E":
+                return createEvent(splitParts, taskDescription, taskIsDone);
+            default:
+                throw new IllegalArgumentException();
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error parsing task: " + originalLine);
+            return null;
+        }
+    }
+
+    /**
+     * Creates a {@code Deadline} from the split parts array.
+     */
+    private static Deadline createDeadline(String[] splitParts, String description, boolean isDone) {
+        if (splitParts.length < 4) {
+            throw new IllegalArgumentException();
+        }
+        return new Deadline(description, isDone, parseStoredDate(splitParts[3]));
+    }
+
+    /**
+     * Creates an {@code Event} from the split parts array.
+     */
+    private static Event createEvent(String[] splitParts, String description, boolean isDone) {
+        if (splitParts.length < 5) {
+            throw new IllegalArgumentException();
+        }
+        return new Event(description, isDone, parseStoredDate(splitParts[3]), parseStoredDate(splitParts[4]));
+    }
+
+    /**
+     * Parses a date from the file. Dates are written in ISO format, which is tried first;
+     * anything else goes through the lenient {@link DateParser}.
+     */
+    private static LocalDateTime parseStoredDate(String date) {
+        try {
+            return LocalDateTime.parse(date);
+        } catch (DateTimeParseException e) {
+            return DateParser.parseDate(date);
+        }
+    }
+}
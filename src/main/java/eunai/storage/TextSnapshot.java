@@ -0,0 +1,57 @@
+package eunai.storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import eunai.task.Task;
+
+/**
+ * Reads and writes snapshots of the task list in the pipe-delimited text format, one task per line.
+ */
+public class TextSnapshot implements SnapshotFormat {
+
+    /**
+     * Reads every valid task from the snapshot file. Invalid lines are skipped.
+     * Large files are parsed in parallel by a {@link ParallelTextLoader}.
+     * @param file The snapshot file.
+     * @return An {@code ArrayList} of the tasks in the file.
+     */
+    @Override
+    public ArrayList<Task> read(Path file) throws IOException {
+        if (Files.size(file) >= ParallelTextLoader.MIN_PARALLEL_SIZE) {
+            return new ParallelTextLoader().load(file);
+        }
+        ArrayList<Task> tasks = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String currLine;
+            while ((currLine = reader.readLine()) != null) {
+                Task task = TaskParser.parseTask(currLine);
+                if (task != null) {
+                    tasks.add(task);
+                }
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public void write(Path file, List<Task> tasks) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file.toFile());
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (Task task : tasks) {
+                writer.write(task.toFileFormat());
+                writer.write(System.lineSeparator());
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+    }
+}
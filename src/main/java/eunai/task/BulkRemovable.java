@@ -0,0 +1,17 @@
+package eunai.task;
+
+import java.util.BitSet;
+
+/**
+ * Represents a list of tasks that can remove many tasks in a single pass, without creating or
+ * parsing the tasks it removes.
+ */
+public interface BulkRemovable {
+
+    /**
+     * Removes the tasks at every index in {@code indices}, keeping the rest in order.
+     *
+     * @param indices The indices of the tasks to remove.
+     */
+    void removeAll(BitSet indices);
+}
@@ -0,0 +1,234 @@
+package eunai.task;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Represents a list of tasks stored column by column instead of as one object per task.
+ * <p>
+ * Each field has its own array: the type of every task, a bit set of done flags, the dates as epoch
+ * seconds, and the descriptions as UTF-8 in one shared byte array. A task then takes a few dozen bytes
+ * instead of several objects, and the tasks lie next to each other in memory for scans.
+ * {@link #get(int)} creates a new {@code Task} from the columns every time it is called, so changes to
+ * the returned task are only kept once it is passed back to {@link #set(int, Task)}.
+ * </p>
+ * <p>
+ * Dates are stored to the second, which is as precise as {@link eunai.DateParser} reads them.
+ * </p>
+ */
+public class ColumnarTaskList extends AbstractList<Task>
+        implements RandomAccess, BulkRemovable, StatusReadable {
+    private static final TaskType[] TYPES = TaskType.values();
+
+    private byte[] types;
+    private final BitSet doneFlags = new BitSet();
+    // The due date of a deadline or the start of an event
+    private long[] starts;
+    // The end of an event
+    private long[] ends;
+    private int[] descriptionOffsets;
+    private int[] descriptionLengths;
+    private byte[] arena;
+    private int arenaSize;
+    // The bytes of the arena that belong to a task still in the list
+    private int liveArenaSize;
+    private int size;
+
+    /**
+     * Constructs an empty {@code ColumnarTaskList}.
+     */
+    public ColumnarTaskList() {
+        this(16);
+    }
+
+    private ColumnarTaskList(int capacity) {
+        types = new byte[capacity];
+        starts = new long[capacity];
+        ends = new long[capacity];
+        descriptionOffsets = new int[capacity];
+        descriptionLengths = new int[capacity];
+        arena = new byte[capacity * 16];
+    }
+
+    /**
+     * Constructs a {@code ColumnarTaskList} holding the given tasks, in order.
+     *
+     * @param tasks The tasks to store.
+     */
+    public ColumnarTaskList(Collection<? extends Task> tasks) {
+        this(Math.max(16, tasks.size()));
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    @Override
+    public Task get(int index) {
+        checkIndex(index, size);
+        String description = new String(arena, descriptionOffsets[index], descriptionLengths[index],
+                StandardCharsets.UTF_8);
+        boolean isDone = doneFlags.get(index);
+        switch (TYPES[types[index]]) {
+        case DEADLINE:
+            return new Deadline(description, isDone, toDateTime(starts[index]));
+        case EVENT:
+            return new Event(description, isDone, toDateTime(starts[index]), toDateTime(ends[index]));
+        default:
+            return new ToDo(description, isDone);
+        }
+    }
+
+    /**
+     * Stores {@code task} in place of the task at {@code index}. If the description is unchanged, as it
+     * is when a task is only marked or unmarked, the stored description is kept.
+     */
+    @Override
+    public Task set(int index, Task task) {
+        Task previous = get(index);
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        int offset = descriptionOffsets[index];
+        int length = descriptionLengths[index];
+        if (!Arrays.equals(arena, offset, offset + length, description, 0, description.length)) {
+            liveArenaSize -= length;
+            storeDescription(index, description);
+            compactArenaIfSparse();
+        }
+        storeFields(index, task);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        checkIndex(index, size + 1);
+        if (size == types.length) {
+            grow();
+        }
+        int moved = size - index;
+        System.arraycopy(types, index, types, index + 1, moved);
+        System.arraycopy(starts, index, starts, index + 1, moved);
+        System.arraycopy(ends, index, ends, index + 1, moved);
+        System.arraycopy(descriptionOffsets, index, descriptionOffsets, index + 1, moved);
+        System.arraycopy(descriptionLengths, index, descriptionLengths, index + 1, moved);
+        for (int i = size; i > index; i--) {
+            doneFlags.set(i, doneFlags.get(i - 1));
+        }
+        size++;
+        storeDescription(index, task.getDescription().getBytes(StandardCharsets.UTF_8));
+        storeFields(index, task);
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        BitSet indices = new BitSet();
+        indices.set(index);
+        removeAll(indices);
+        return removed;
+    }
+
+    @Override
+    public void removeAll(BitSet indices) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (indices.get(i)) {
+                liveArenaSize -= descriptionLengths[i];
+                continue;
+            }
+            types[kept] = types[i];
+            doneFlags.set(kept, doneFlags.get(i));
+            starts[kept] = starts[i];
+            ends[kept] = ends[i];
+            descriptionOffsets[kept] = descriptionOffsets[i];
+            descriptionLengths[kept] = descriptionLengths[i];
+            kept++;
+        }
+        doneFlags.clear(kept, size);
+        size = kept;
+        compactArenaIfSparse();
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isDone(int index) {
+        return doneFlags.get(checkIndex(index, size));
+    }
+
+    private void storeFields(int index, Task task) {
+        types[index] = (byte) task.getTaskType().ordinal();
+        doneFlags.set(index, task.taskStatus());
+        if (task instanceof Deadline) {
+            starts[index] = toEpochSecond(((Deadline) task).getByDate());
+        } else if (task instanceof Event) {
+            starts[index] = toEpochSecond(((Event) task).getStartDate());
+            ends[index] = toEpochSecond(((Event) task).getEndDate());
+        }
+    }
+
+    /**
+     * Appends a description to the arena and points the task at {@code index} to it.
+     */
+    private void storeDescription(int index, byte[] description) {
+        if (arenaSize + description.length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + description.length));
+        }
+        System.arraycopy(description, 0, arena, arenaSize, description.length);
+        descriptionOffsets[index] = arenaSize;
+        descriptionLengths[index] = description.length;
+        arenaSize += description.length;
+        liveArenaSize += description.length;
+    }
+
+    /**
+     * Rewrites the arena with only the descriptions still in use, once they take up less than half of it.
+     */
+    private void compactArenaIfSparse() {
+        if (liveArenaSize >= arenaSize / 2) {
+            return;
+        }
+        byte[] compacted = new byte[Math.max(16, liveArenaSize * 2)];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(arena, descriptionOffsets[i], compacted, position, descriptionLengths[i]);
+            descriptionOffsets[i] = position;
+            position += descriptionLengths[i];
+        }
+        arena = compacted;
+        arenaSize = position;
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        descriptionOffsets = Arrays.copyOf(descriptionOffsets, capacity);
+        descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private static int checkIndex(int index, int length) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+        }
+        return index;
+    }
+}
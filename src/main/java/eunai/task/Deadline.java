@@ -26,23 +26,34 @@ public class Deadline extends Task {
     }
 
     /**
-     * Prints the deadline task details to the console.
-     * The format is {@code [D][status] description (by: due date)}.
+     * Constructs a {@code Deadline} task with an already parsed due date.
+     *
+     * @param description The description of the deadline task.
+     * @param isDone Indicates whether the task is marked as done.
+     * @param byDate The due date of the task.
      */
-    @Override
-    public void printTask() {
-        System.out.println("[D][" + this.getStatusIcon() + "] " + this.description
-                + " (by: " + DateParser.formatDate(this.byDate) + ")");
+    public Deadline(String description, boolean isDone, LocalDateTime byDate) {
+        super(description, isDone);
+        this.byDate = byDate;
+    }
+
+    /**
+     * Returns the date and time by which the task should be completed.
+     *
+     * @return The due date of the task.
+     */
+    public LocalDateTime getByDate() {
+        return this.byDate;
     }
 
     /**
-     * Returns the string representation of the deadline task for display purposes.
+     * Builds the string representation of the deadline task for display purposes.
      *
      * @return A string representing the deadline task in the format
      *         {@code [D][status] description (by: due date)}.
      */
     @Override
-    public String getTaskString() {
+    protected String renderTaskString() {
         return "[D][" + this.getStatusIcon() + "] " + this.description
                 + " (by: " + DateParser.formatDate(this.byDate) + ")";
     }
@@ -59,8 +70,8 @@ public class Deadline extends Task {
         return "D | " + (this.isDone ? "1" : "0") + " | " + this.description + " | " + this.byDate;
     }
     @Override
-    public String getTaskType() {
-        return "D";
+    public TaskType getTaskType() {
+        return TaskType.DEADLINE;
     }
 
 }
@@ -32,24 +32,45 @@ public class Event extends Task {
     }
 
     /**
-     * Prints the event task details to the console.
-     * The format is {@code [E][status] description (from: start date to: end date)}.
+     * Constructs an {@code Event} task with already parsed start and end dates.
+     *
+     * @param description The description of the event task.
+     * @param isDone Indicates whether the event task is marked as done.
+     * @param startDate The start date of the event.
+     * @param endDate The end date of the event.
      */
-    @Override
-    public void printTask() {
-        System.out.println("[E][" + this.getStatusIcon() + "] " + this.description
-                + " (from: " + DateParser.formatDate(this.startDate)
-                + " to: " + DateParser.formatDate(this.endDate) + ")");
+    public Event(String description, boolean isDone, LocalDateTime startDate, LocalDateTime endDate) {
+        super(description, isDone);
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    /**
+     * Returns the start date and time of the event.
+     *
+     * @return The start date of the event.
+     */
+    public LocalDateTime getStartDate() {
+        return this.startDate;
+    }
+
+    /**
+     * Returns the end date and time of the event.
+     *
+     * @return The end date of the event.
+     */
+    public LocalDateTime getEndDate() {
+        return this.endDate;
     }
 
     /**
-     * Returns the string representation of the event task for display purposes.
+     * Builds the string representation of the event task for display purposes.
      *
      * @return A string representing the event task in the format
      *         {@code [E][status] description (from: start date to: end date)}.
      */
     @Override
-    public String getTaskString() {
+    protected String renderTaskString() {
         return "[E][" + this.getStatusIcon() + "] " + this.description
                 + " (from: " + DateParser.formatDate(this.startDate)
                 + " to: " + DateParser.formatDate(this.endDate) + ")";
@@ -69,8 +90,8 @@ public class Event extends Task {
                 + endDate.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
     }
     @Override
-    public String getTaskType() {
-        return "E";
+    public TaskType getTaskType() {
+        return TaskType.EVENT;
     }
 
 }
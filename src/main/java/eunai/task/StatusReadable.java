@@ -0,0 +1,14 @@
+package eunai.task;
+
+/**
+ * Represents a list of tasks that can tell whether a task is done without creating or parsing it.
+ */
+public interface StatusReadable {
+
+    /**
+     * Returns whether the task at {@code index} is done.
+     *
+     * @param index The index of the task.
+     */
+    boolean isDone(int index);
+}
@@ -7,7 +7,7 @@ package eunai.task;
  * Provides common functionalities for all types of tasks such as marking, unmarking, and displaying task information.
  * Subclasses must implement the {@link #toFileFormat()} method for file storage.
  */
-public abstract class Task {
+public abstract class Task implements Cloneable {
 
     /** The description of the task. */
     protected String description;
@@ -15,6 +15,9 @@ public abstract class Task {
     /** The completion status of the task. {@code true} if the task is done, {@code false} otherwise. */
     protected boolean isDone;
 
+    /** The display string, kept until the task changes. */
+    private String taskString;
+
     /**
      * Constructs a {@code Task} with the specified description and completion status.
      *
@@ -43,23 +46,58 @@ public abstract class Task {
      * The format is {@code [status] description}.
      */
     public void printTask() {
-        System.out.println("[" + this.getStatusIcon() + "] " + this.description);
+        System.out.println(getTaskString());
     }
 
     /**
      * Returns the string representation of the task for display purposes.
+     * The string is only built the first time it is asked for after the task changes.
+     *
+     * @return A string representing the task, as built by {@link #renderTaskString()}.
+     */
+    public final String getTaskString() {
+        if (taskString == null) {
+            taskString = renderTaskString();
+        }
+        return taskString;
+    }
+
+    /**
+     * Builds the string representation of the task for display purposes.
+     * Subclasses that change how a task is displayed override this.
      *
      * @return A string representing the task in the format {@code [status] description}.
      */
-    public String getTaskString() {
+    protected String renderTaskString() {
         return "[" + this.getStatusIcon() + "] " + this.description;
     }
 
+    /**
+     * Discards the cached display string. Must be called whenever a field shown in it changes.
+     */
+    protected void invalidateTaskString() {
+        this.taskString = null;
+    }
+
+    /**
+     * Returns a copy of this task, which can be changed without changing this task.
+     *
+     * @return A task of the same type with the same fields.
+     */
+    public Task copy() {
+        try {
+            return (Task) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError("Task is cloneable", e);
+        }
+    }
+
     /**
      * Marks the task as done.
      */
     public void markTask() {
         this.isDone = true;
+        invalidateTaskString();
     }
 
     /**
@@ -67,6 +105,7 @@ public abstract class Task {
      */
     public void unmarkTask() {
         this.isDone = false;
+        invalidateTaskString();
     }
 
     /**
@@ -95,12 +134,10 @@ public abstract class Task {
         return this.description;
     }
     /**
-     * Returns the task type identifier.
+     * Returns the type of the task.
      *
-     * @return A string representing the task type ("T" for ToDo, "D" for Deadline, "E" for Event).
+     * @return The {@link TaskType} of this task.
      */
-    public String getTaskType() {
-        return "default"; // Default, should be overridden in subclasses
-    }
+    public abstract TaskType getTaskType();
 
 }
@@ -0,0 +1,23 @@
+package eunai.task;
+
+/**
+ * Represents the kinds of tasks, each with the one-letter code used for it in saved files and displays.
+ */
+public enum TaskType {
+    TODO('T'), DEADLINE('D'), EVENT('E');
+
+    private final char code;
+
+    TaskType(char code) {
+        this.code = code;
+    }
+
+    /**
+     * Returns the one-letter code of this type ('T', 'D' or 'E').
+     *
+     * @return The code of this type.
+     */
+    public char getCode() {
+        return code;
+    }
+}
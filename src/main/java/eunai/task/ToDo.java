@@ -17,21 +17,12 @@ public class ToDo extends Task {
     }
 
     /**
-     * Prints the to-do task details to the console.
-     * The format is {@code [T][status] description}.
-     */
-    @Override
-    public void printTask() {
-        System.out.println("[T][" + this.getStatusIcon() + "] " + this.description);
-    }
-
-    /**
-     * Returns the string representation of the to-do task for display purposes.
+     * Builds the string representation of the to-do task for display purposes.
      *
      * @return A string representing the to-do task in the format {@code [T][status] description}.
      */
     @Override
-    public String getTaskString() {
+    protected String renderTaskString() {
         return "[T][" + this.getStatusIcon() + "] " + this.description;
     }
 
@@ -47,8 +38,8 @@ public class ToDo extends Task {
         return "T | " + (this.isDone ? "1" : "0") + " | " + this.description;
     }
     @Override
-    public String getTaskType() {
-        return "T";
+    public TaskType getTaskType() {
+        return TaskType.TODO;
     }
 
 }
@@ -22,6 +22,10 @@ public class CommandParserTest {
         assertEquals(CommandParser.Command.INVALID, CommandParser.parseCommand("   ")); // spaces only
         assertEquals(CommandParser.Command.TODO, CommandParser.parseCommand("todo")); // no description
         assertEquals(CommandParser.Command.LIST, CommandParser.parseCommand("list ")); // trailing space
+        assertEquals(CommandParser.Command.LIST, CommandParser.parseCommand("list 2-5")); // range
+        assertEquals(CommandParser.Command.INVALID, CommandParser.parseCommand("listing"));
+        assertEquals(CommandParser.Command.UNDO, CommandParser.parseCommand("undo"));
+        assertEquals(CommandParser.Command.REDO, CommandParser.parseCommand("redo"));
     }
 }
 
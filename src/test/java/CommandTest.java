@@ -0,0 +1,43 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import eunai.Storage;
+import eunai.TaskList;
+import eunai.command.Command;
+import eunai.task.ToDo;
+import eunai.ui.Ui;
+
+public class CommandTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testFindRegexWithComma() {
+        Storage storage = new Storage(tempDir.resolve("tasks.txt").toString());
+        TaskList taskList = new TaskList();
+        taskList.addTask(new ToDo("aaa", false));
+        taskList.addTask(new ToDo("b", false));
+
+        String response = Command.execute("find /^a{1,3}$/", taskList, new Ui(), storage);
+        assertTrue(response.startsWith("Found 1 matching task(s):"), response);
+        assertTrue(response.contains("aaa"), response);
+        assertTrue(Command.isMassOperation("mark 1,2"));
+    }
+
+    @Test
+    public void testFindQueryWithCommaInQuotes() {
+        Storage storage = new Storage(tempDir.resolve("tasks.txt").toString());
+        TaskList taskList = new TaskList();
+        taskList.addTask(new ToDo("buy eggs, milk", false));
+        taskList.addTask(new ToDo("buy eggs", false));
+
+        String response = Command.execute("find type:todo \"eggs, milk\"", taskList, new Ui(), storage);
+        assertTrue(response.startsWith("Found 1 matching task(s):"), response);
+        assertTrue(response.contains("buy eggs, milk"), response);
+    }
+}
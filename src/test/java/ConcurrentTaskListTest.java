@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+import eunai.ConcurrentTaskList;
+import eunai.TaskList;
+import eunai.task.Task;
+import eunai.task.ToDo;
+
+public class ConcurrentTaskListTest {
+    private static final int INITIAL_SIZE = 10_000;
+    private static final int WRITES = 5_000;
+    private static final int READERS = 4;
+    private static final int READS = 20_000;
+    private static final long MEASURE_MILLIS = 300;
+
+    @Test
+    public void testReadsRunWhileWritesProceed() throws Exception {
+        // Readers and the writer each do a fixed amount of work, so the test also finishes on a single core
+        ConcurrentTaskList taskList = new ConcurrentTaskList();
+        for (int i = 0; i < INITIAL_SIZE; i++) {
+            taskList.addTask(new ToDo("task " + i, false));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(READERS + 1);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            int seed = r;
+            readers.add(pool.submit(() -> {
+                for (int reads = 0; reads < READS; reads++) {
+                    // The writer never lets the list shrink below its initial size
+                    int index = (reads * 31 + seed) % INITIAL_SIZE;
+                    assertTrue(taskList.getTask(index).getDescription().startsWith("task "));
+                    assertTrue(taskList.getSize() >= INITIAL_SIZE);
+                    assertEquals(20, taskList.getListString(0, 20).split("\n").length);
+                    if (reads % 100 == 0) {
+                        assertTrue(taskList.findTask("task").getSize() >= INITIAL_SIZE);
+                    }
+                }
+            }));
+        }
+        Future<?> writer = pool.submit(() -> {
+            for (int i = 0; i < WRITES; i++) {
+                taskList.addTask(new ToDo("task " + (INITIAL_SIZE + i), false));
+                taskList.markTask(i % INITIAL_SIZE);
+                taskList.deleteTask(0);
+            }
+        });
+
+        writer.get(60, TimeUnit.SECONDS);
+        for (Future<?> reader : readers) {
+            reader.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(INITIAL_SIZE, taskList.getSize());
+        assertEquals("task " + WRITES, taskList.getTask(0).getDescription());
+        assertEquals("task " + (INITIAL_SIZE + WRITES - 1), taskList.getLastTask().getDescription());
+        TaskList found = taskList.findTask("task " + WRITES);
+        assertEquals("task " + WRITES, found.getTask(0).getDescription());
+        List<Task> snapshot = taskList.getAllTasks();
+        assertEquals(INITIAL_SIZE, snapshot.size());
+    }
+
+    @Test
+    public void testReadThroughputHoldsUpWithMoreReaders() throws Exception {
+        // The first run only warms up the JIT
+        measureReadsPerSecond(1);
+        double oneReader = measureReadsPerSecond(1);
+        double manyReaders = measureReadsPerSecond(READERS);
+        System.out.printf("Reads per second while writing: %.0f with 1 reader, %.0f with %d readers on %d cores%n",
+                oneReader, manyReaders, READERS, Runtime.getRuntime().availableProcessors());
+
+        // Readers do not block each other, so more readers never read much less in total. How much more
+        // they read depends on the number of cores, which is only 1 on some machines, so that is not asserted.
+        assertTrue(manyReaders >= oneReader / 2, "Reads slowed down from " + oneReader + " to " + manyReaders);
+    }
+
+    /**
+     * Returns how many tasks {@code readerCount} threads read per second in total, while another thread
+     * keeps changing the list.
+     */
+    private static double measureReadsPerSecond(int readerCount) throws Exception {
+        ConcurrentTaskList taskList = new ConcurrentTaskList();
+        for (int i = 0; i < INITIAL_SIZE; i++) {
+            taskList.addTask(new ToDo("task " + i, false));
+        }
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+
+        ExecutorService pool = Executors.newFixedThreadPool(readerCount + 1);
+        List<Future<?>> threads = new ArrayList<>();
+        threads.add(pool.submit(() -> {
+            for (int i = 0; isRunning.get(); i++) {
+                taskList.addTask(new ToDo("task " + (INITIAL_SIZE + i), false));
+                taskList.deleteTask(0);
+                // Writes steadily instead of as fast as possible, so the readers are not starved
+                LockSupport.parkNanos(100_000);
+            }
+        }));
+        for (int r = 0; r < readerCount; r++) {
+            int seed = r;
+            threads.add(pool.submit(() -> {
+                for (int i = 0; isRunning.get(); i++) {
+                    taskList.getTask((i * 31 + seed) % INITIAL_SIZE);
+                    reads.increment();
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        Thread.sleep(MEASURE_MILLIS);
+        isRunning.set(false);
+        long elapsed = System.nanoTime() - start;
+        for (Future<?> thread : threads) {
+            thread.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        return reads.sum() * 1e9 / elapsed;
+    }
+}
@@ -1,4 +1,5 @@
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import org.junit.jupiter.api.Test;
 
@@ -23,6 +24,18 @@ public class DeadlineTest {
         assertEquals(expected, deadline.getTaskString());
     }
 
+    @Test
+    public void testGetTaskStringAfterMarking() {
+        Deadline deadline = new Deadline("submit assignment", false, "2024-06-01 18:00");
+        assertSame(deadline.getTaskString(), deadline.getTaskString());
+
+        String unmarked = deadline.getTaskString();
+        deadline.markTask();
+        assertEquals(unmarked.replace("[ ]", "[X]"), deadline.getTaskString());
+        deadline.unmarkTask();
+        assertEquals(unmarked, deadline.getTaskString());
+    }
+
     @Test
     public void testToFileFormatNotDone() {
         Deadline deadline = new Deadline("submit assignment", false, "2024-06-01 18:00");
@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import eunai.TaskList;
+import eunai.query.Clause;
+import eunai.query.Query;
+import eunai.task.Deadline;
+import eunai.task.Event;
+import eunai.task.Task;
+import eunai.task.ToDo;
+
+public class QueryTest {
+
+    @Test
+    public void testParse() {
+        assertTrue(Query.isQuery("type:deadline report"));
+        assertTrue(Query.isQuery("\"weekly report\""));
+        assertFalse(Query.isQuery("meeting: bob"));
+
+        Query query = Query.parse("TYPE:deadline done:false before:\"2025-03-01 18:00\" \"weekly report\" bob");
+        List<Clause> clauses = query.getClauses();
+        assertEquals(5, clauses.size());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 18, 0), ((Clause.DueBetween) clauses.get(2)).getTo());
+        assertEquals("weekly report", ((Clause.Contains) clauses.get(3)).getLowerText());
+        assertTrue(query.test(new Deadline("Weekly report for Bob", false, "2025-02-01")));
+        assertFalse(query.test(new Deadline("Weekly report for Bob", true, "2025-02-01")));
+
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("type:chore"));
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("\"unclosed"));
+    }
+
+    @Test
+    public void testPlannedQueriesMatchScan() {
+        Random random = new Random(7);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String description = (random.nextInt(20) == 0 ? "quarterly report " : "chore ") + i;
+            LocalDateTime date = LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(random.nextInt(24 * 365));
+            switch (i % 3) {
+            case 0:
+                tasks.add(new ToDo(description, random.nextBoolean()));
+                break;
+            case 1:
+                tasks.add(new Deadline(description, random.nextBoolean(), date));
+                break;
+            default:
+                tasks.add(new Event(description, random.nextBoolean(), date, date.plusHours(2)));
+                break;
+            }
+        }
+        TaskList taskList = new TaskList(new ArrayList<>(tasks));
+        taskList.deleteTask(1);
+        tasks.remove(1);
+
+        String[] inputs = {
+            "\"report\"", "type:event done:true", "on:2025-06-01", "after:2025-12-01 type:deadline",
+            "done:false before:2025-02-01 re", "\"quarterly\" type:todo done:false"
+        };
+        for (String input : inputs) {
+            Query query = Query.parse(input);
+            List<Task> expected = tasks.stream().filter(query).toList();
+            assertEquals(expected, taskList.findByQuery(query).getAllTasks(), input);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import eunai.Storage;
+import eunai.TaskList;
+import eunai.storage.BinarySnapshot;
+import eunai.storage.FixedRecordSnapshot;
+import eunai.storage.SnapshotConverter;
+import eunai.storage.SnapshotFormat;
+import eunai.storage.TextSnapshot;
+import eunai.task.Task;
+import eunai.task.ToDo;
+
+
+public class SnapshotFormatTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testTextToBinaryAndBack() throws IOException {
+        List<String> lines = List.of(
+                "T | 0 | wash clothes",
+                "D | 1 | return book | 2019-12-02T18:00",
+                "E | 0 | workshop \u00fcn\u00efcode | 2025-02-01T00:00:00 | 2025-02-03T09:30:00");
+        Path text = tempDir.resolve("tasks.txt");
+        Path binary = tempDir.resolve("tasks.bin");
+        Path textAgain = tempDir.resolve("tasks-again.txt");
+        Files.write(text, lines);
+
+        assertEquals(3, SnapshotConverter.convert(text, binary, new BinarySnapshot()));
+        assertTrue(SnapshotFormat.detect(binary) instanceof BinarySnapshot);
+        SnapshotConverter.convert(binary, textAgain, new TextSnapshot());
+
+        List<Task> tasks = new TextSnapshot().read(textAgain);
+        assertEquals(3, tasks.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(lines.get(i), tasks.get(i).toFileFormat());
+        }
+    }
+
+    @Test
+    public void testFixedRecordChangesWrittenInPlace() throws IOException {
+        Path text = tempDir.resolve("tasks.txt");
+        Path dataFile = tempDir.resolve("tasks.dat");
+        Files.write(text, List.of("T | 0 | read book", "T | 0 | return book", "D | 0 | essay | 2024-06-01T00:00"));
+        SnapshotConverter.convert(text, dataFile, new FixedRecordSnapshot());
+        long originalSize = Files.size(dataFile);
+
+        Storage storage = new Storage(dataFile.toString());
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        taskList.markTask(2);
+        taskList.deleteTask(0);
+        taskList.addTask(new ToDo("buy pens", false));
+        assertTrue(storage.close());
+
+        // Folding the journal appended only the new task; the rest changed in place
+        assertTrue(new FixedRecordSnapshot().applyInPlace(dataFile, Path.of(dataFile + ".journal")));
+        assertEquals(originalSize + (originalSize - 32) / 3, Files.size(dataFile));
+        assertTrue(SnapshotFormat.detect(dataFile) instanceof FixedRecordSnapshot);
+        List<Task> tasks = new Storage(dataFile.toString()).loadSavedTasks();
+        assertEquals(3, tasks.size());
+        assertEquals("T | 0 | return book", tasks.get(0).toFileFormat());
+        assertEquals("D | 1 | essay | 2024-06-01T00:00", tasks.get(1).toFileFormat());
+        assertEquals("T | 0 | buy pens", tasks.get(2).toFileFormat());
+    }
+
+    @Test
+    public void testUndoSavedInFixedRecordSnapshot() throws IOException {
+        Path dataFile = tempDir.resolve("tasks.dat");
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new ToDo("task " + i, false));
+        }
+        new FixedRecordSnapshot().write(dataFile, tasks);
+
+        Storage storage = new Storage(dataFile.toString());
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        taskList.enableHistory();
+        taskList.markTask(3);
+        taskList.commitVersion();
+        taskList.addTask(new ToDo("c", false));
+        taskList.commitVersion();
+        assertTrue(taskList.undo());
+        assertTrue(storage.close());
+
+        List<Task> loaded = new Storage(dataFile.toString()).loadSavedTasks();
+        assertEquals(10, loaded.size());
+        assertEquals("T | 1 | task 3", loaded.get(3).toFileFormat());
+
+        // The replaced list can still be folded into the snapshot in place
+        assertTrue(new FixedRecordSnapshot().applyInPlace(dataFile, Path.of(dataFile + ".journal")));
+        loaded = new FixedRecordSnapshot().read(dataFile);
+        assertEquals(10, loaded.size());
+        assertEquals("T | 1 | task 3", loaded.get(3).toFileFormat());
+        assertEquals("T | 0 | task 9", loaded.get(9).toFileFormat());
+    }
+
+    @Test
+    public void testFixedRecordTombstonesReclaimed() throws IOException {
+        Path dataFile = tempDir.resolve("tasks.dat");
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new ToDo("task " + i, false));
+        }
+        new FixedRecordSnapshot().write(dataFile, tasks);
+        long recordWidth = (Files.size(dataFile) - 32) / 10;
+
+        Storage storage = new Storage(dataFile.toString());
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        taskList.deleteTasks(new int[] {0, 1, 2, 3, 4, 5});
+        assertTrue(storage.close());
+
+        // Most slots would be tombstones, so the snapshot is left to be rewritten with only the live tasks
+        Path journal = Path.of(dataFile + ".journal");
+        assertFalse(new FixedRecordSnapshot().applyInPlace(dataFile, journal));
+        assertEquals(32 + 10 * recordWidth, Files.size(dataFile));
+        assertTrue(Files.exists(journal));
+        List<Task> loaded = new Storage(dataFile.toString()).loadSavedTasks();
+        assertEquals(4, loaded.size());
+        assertEquals("T | 0 | task 6", loaded.get(0).toFileFormat());
+    }
+
+    @Test
+    public void testFixedRecordHoldsLongDescriptions() throws IOException {
+        Path dataFile = tempDir.resolve("tasks.dat");
+        new FixedRecordSnapshot().write(dataFile, List.of(new ToDo("read book", false)));
+        String longDescription = "a".repeat(70000);
+
+        Storage storage = new Storage(dataFile.toString());
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        taskList.addTask(new ToDo(longDescription, false));
+        assertTrue(storage.saveTasks(taskList.getAllTasks()));
+        assertTrue(storage.close());
+
+        assertTrue(SnapshotFormat.detect(dataFile) instanceof FixedRecordSnapshot);
+        List<Task> loaded = new FixedRecordSnapshot().read(dataFile);
+        assertEquals(2, loaded.size());
+        assertEquals(longDescription, loaded.get(1).getDescription());
+    }
+
+    @Test
+    public void testFixedRecordVersion1ReadAndUpgraded() throws IOException {
+        Path dataFile = tempDir.resolve("tasks.dat");
+        ByteBuffer file = ByteBuffer.allocate(32 + 128);
+        file.putInt(FixedRecordSnapshot.MAGIC).putInt(1).putInt(128).putInt(0).putLong(1).putLong(0);
+        byte[] description = "read book".getBytes(StandardCharsets.UTF_8);
+        file.put((byte) 1).put((byte) 'T').putShort((short) description.length).putLong(0).putLong(0)
+                .put(description);
+        Files.write(dataFile, file.array());
+
+        List<Task> loaded = new FixedRecordSnapshot().read(dataFile);
+        assertEquals("T | 1 | read book", loaded.get(0).toFileFormat());
+
+        Storage storage = new Storage(dataFile.toString());
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        taskList.addTask(new ToDo("return book", false));
+        assertTrue(storage.close());
+        // A version 1 snapshot is rewritten rather than changed in place
+        assertFalse(new FixedRecordSnapshot().applyInPlace(dataFile, Path.of(dataFile + ".journal")));
+        assertEquals(2, new Storage(dataFile.toString()).loadSavedTasks().size());
+    }
+
+    @Test
+    public void testDamagedBlockReplacedAndReported() throws IOException {
+        Path binary = tempDir.resolve("tasks.bin");
+        byte[] bytes = writeDamagedSnapshot(binary);
+
+        List<String> damage = new ArrayList<>();
+        List<Task> loaded = new BinarySnapshot().read(binary, damage);
+        assertEquals(2500, loaded.size());
+        assertEquals(List.of("Block 2 of the saved tasks is damaged. Lost tasks 1025 to 2048, "
+                + "which are kept as placeholders."), damage);
+        assertEquals("T | 0 | (damaged) saved task 1025 could not be read", loaded.get(1024).toFileFormat());
+        assertEquals("T | 0 | task 2048", loaded.get(2048).toFileFormat());
+
+        // Without the footer, blocks are found by following their lengths
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(binary, bytes);
+        damage.clear();
+        loaded = new BinarySnapshot().read(binary, damage);
+        assertEquals(2500, loaded.size());
+        assertEquals("T | 0 | task 2048", loaded.get(2048).toFileFormat());
+        assertEquals(2, damage.size());
+    }
+
+    @Test
+    public void testJournalReplayedAfterDamagedBlock() throws IOException {
+        Path binary = tempDir.resolve("tasks.bin");
+        Storage storage = new Storage(binary.toString());
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        for (int i = 0; i < 2500; i++) {
+            taskList.addTask(new ToDo("task " + i, false));
+        }
+        new BinarySnapshot().write(binary, taskList.getAllTasks());
+        taskList.addListener(storage);
+        taskList.markTask(2400);
+        taskList.deleteTask(0);
+        storage.commit().join();
+        storage.flush().join();
+        writeDamagedSnapshot(binary);
+
+        // The journal still marks and deletes the tasks it was recorded against
+        List<Task> tasks = new Storage(binary.toString()).loadSavedTasks();
+        assertEquals(2499, tasks.size());
+        assertEquals("T | 0 | task 1", tasks.get(0).toFileFormat());
+        assertEquals("T | 1 | task 2400", tasks.get(2399).toFileFormat());
+    }
+
+    /**
+     * Writes a binary snapshot of 2500 tasks whose second block is damaged.
+     * @return The bytes written.
+     */
+    private static byte[] writeDamagedSnapshot(Path binary) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            tasks.add(new ToDo("task " + i, false));
+        }
+        new BinarySnapshot().write(binary, tasks);
+        byte[] bytes = Files.readAllBytes(binary);
+        // A byte in the middle of the file lands in the second of three blocks
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(binary, bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,508 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import eunai.Storage;
+import eunai.TaskList;
+import eunai.storage.AutosavePolicy;
+import eunai.storage.Journal;
+import eunai.storage.KeyValueBackend;
+import eunai.storage.LazyTaskList;
+import eunai.storage.TextSnapshot;
+import eunai.task.Deadline;
+import eunai.task.Task;
+import eunai.task.ToDo;
+
+
+public class StorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testJournalReplayedOnLoad() throws IOException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+
+        taskList.addTask(new ToDo("read book", false));
+        taskList.addTask(new Deadline("return book", false, "2024-06-01"));
+        taskList.addTask(new ToDo("wash clothes", false));
+        taskList.markTask(1);
+        taskList.deleteTask(0);
+        assertTrue(storage.commit().join());
+        // Marking journals only the new status, not the whole task
+        assertTrue(Files.readAllLines(Path.of(filePath + ".journal")).contains("M 1"));
+
+        List<Task> loaded = new Storage(filePath).loadSavedTasks();
+        assertEquals(2, loaded.size());
+        assertEquals("D | 1 | return book | 2024-06-01T00:00", loaded.get(0).toFileFormat());
+        assertEquals("T | 0 | wash clothes", loaded.get(1).toFileFormat());
+    }
+
+    @Test
+    public void testUncommittedGroupIgnored() throws IOException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        taskList.addTask(new ToDo("read book", false));
+        storage.commit().join();
+
+        // Simulates a crash halfway through writing the next group
+        Files.writeString(Path.of(filePath + ".journal"), "A T | 0 | half written\n", StandardOpenOption.APPEND);
+
+        Storage reloaded = new Storage(filePath);
+        TaskList reloadedList = new TaskList(reloaded.loadSavedTasks());
+        reloadedList.addListener(reloaded);
+        assertEquals(1, reloadedList.getSize());
+
+        reloadedList.addTask(new ToDo("wash clothes", false));
+        reloaded.commit().join();
+        List<Task> loaded = new Storage(filePath).loadSavedTasks();
+        assertEquals(2, loaded.size());
+        assertEquals("wash clothes", loaded.get(1).getDescription());
+    }
+
+    @Test
+    public void testSaveTasksFoldsJournalIntoSnapshot() throws IOException {
+        Path dataFile = tempDir.resolve("tasks.txt");
+        Storage storage = new Storage(dataFile.toString());
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        taskList.addTask(new ToDo("read book", false));
+        taskList.addTask(new ToDo("wash clothes", false));
+        storage.commit().join();
+
+        assertTrue(storage.saveTasks(taskList.getAllTasks()));
+        assertEquals(List.of("T | 0 | read book", "T | 0 | wash clothes"), Files.readAllLines(dataFile));
+        assertEquals(0L, Files.size(Path.of(dataFile + ".journal")));
+        assertEquals(2, new Storage(dataFile.toString()).loadSavedTasks().size());
+    }
+
+    @Test
+    public void testInterruptedCompactionRecovered() throws IOException {
+        Path dataFile = tempDir.resolve("tasks.txt");
+        Files.writeString(dataFile, "T | 0 | old snapshot\n");
+        // Crash after the folded snapshot was marked ready but before the folded journal was deleted
+        Files.writeString(Path.of(dataFile + ".ready"), "T | 0 | read book\n");
+        Files.writeString(Path.of(dataFile + ".journal.compacting"), "A T | 0 | read book\nC\n");
+        Files.writeString(Path.of(dataFile + ".journal"), "A T | 0 | wash clothes\nC\n");
+
+        List<Task> loaded = new Storage(dataFile.toString()).loadSavedTasks();
+        assertEquals(2, loaded.size());
+        assertEquals("read book", loaded.get(0).getDescription());
+        assertEquals("wash clothes", loaded.get(1).getDescription());
+    }
+
+    @Test
+    public void testLazyLoadKeepsChangesAfterEviction() throws IOException {
+        Path file = tempDir.resolve("tasks.txt");
+        Files.writeString(file, "T | 0 | first\nnot a task\nT | 0 | second\nD | 0 | third | 2024-06-01T00:00\n");
+        Storage storage = new Storage(file.toString());
+        TaskList taskList = new TaskList(storage.loadSavedTasksLazily(1));
+        taskList.addListener(storage);
+        assertEquals(3, taskList.getSize());
+
+        taskList.markTask(0);
+        // Touching the other tasks evicts everything that is only cached
+        taskList.getTask(1);
+        taskList.getTask(2);
+        assertTrue(taskList.getTask(0).taskStatus());
+        storage.commit().join();
+
+        List<Task> loaded = new Storage(file.toString()).loadSavedTasksLazily(1);
+        assertEquals("T | 1 | first", loaded.get(0).toFileFormat());
+        assertEquals("D | 0 | third | 2024-06-01T00:00", loaded.get(2).toFileFormat());
+    }
+
+    @Test
+    public void testLazyLoadReadsAfterSnapshotReplaced() throws IOException {
+        Path file = tempDir.resolve("tasks.txt");
+        Files.writeString(file, "T | 0 | first\nT | 0 | second\n");
+        LazyTaskList lazyTasks = LazyTaskList.open(file, 1);
+
+        // Compaction renames a new snapshot over the one that was loaded
+        Path replacement = tempDir.resolve("tasks.txt.ready");
+        Files.writeString(replacement, "T | 1 | other\n");
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING);
+        assertEquals("T | 0 | second", lazyTasks.get(1).toFileFormat());
+        lazyTasks.close();
+    }
+
+    @Test
+    public void testLazyLoadSkipsTheLinesEagerLoadSkips() throws IOException {
+        Path file = tempDir.resolve("tasks.txt");
+        Files.writeString(file, "T | 0 | first\nD | 0 | no date | someday\nT | 1\r\nX | 0 | unknown\n"
+                + "E | 10 | second | 2024-02-28T10:00 | 2024-02-30T10:00\nD | 1 | third | 2024-02-29T09:30\r\n"
+                + "E | 0 | fourth | 01/06/2024 1800 | 2024-06-01T20:00:15\nT | 0 | last");
+        List<Task> eager = new TextSnapshot().read(file);
+        LazyTaskList lazy = LazyTaskList.open(file, 2);
+
+        assertEquals(5, eager.size());
+        assertEquals(eager.size(), lazy.size());
+        for (int i = 0; i < eager.size(); i++) {
+            assertEquals(eager.get(i).toFileFormat(), lazy.get(i).toFileFormat());
+            assertEquals(eager.get(i).taskStatus(), lazy.isDone(i));
+        }
+        lazy.close();
+    }
+
+    @Test
+    public void testLazyLoadFindsDoneTasksWithoutParsing() throws IOException {
+        Path file = tempDir.resolve("tasks.txt");
+        Files.writeString(file, "T | 1 | first\nT | 0 | second\nD | 1 | third | 2024-06-01T00:00\nE | 0 | fourth");
+        LazyTaskList lazyTasks = (LazyTaskList) new Storage(file.toString()).loadSavedTasksLazily(8);
+        TaskList taskList = new TaskList(lazyTasks);
+        taskList.markTask(1);
+
+        assertArrayEquals(new int[] {0, 1, 2}, taskList.getDoneIndices());
+        // Only the task that was marked has been parsed
+        assertEquals(1, lazyTasks.getMaterializedCount());
+    }
+
+    @Test
+    public void testArchiveMovesDoneTasksAndStaysSearchable() throws IOException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        taskList.addTask(new ToDo("read book", true));
+        taskList.addTask(new ToDo("return book", false));
+        assertEquals(1, storage.archiveDoneTasks(taskList).size());
+        storage.commit().join();
+
+        // Simulates a crash halfway through appending the next segment
+        Files.write(Path.of(filePath + ".archive"), new byte[] {0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+        taskList.addTask(new ToDo("buy books", true));
+        storage.archiveDoneTasks(taskList);
+
+        assertEquals(1, taskList.getSize());
+        List<Task> found = new Storage(filePath).searchArchive("BOOK");
+        assertEquals(2, found.size());
+        assertEquals("T | 1 | read book", found.get(0).toFileFormat());
+        assertEquals("T | 1 | buy books", found.get(1).toFileFormat());
+    }
+
+    @Test
+    public void testKeyValueBackendSavesEachChange() throws IOException {
+        Path storeFile = tempDir.resolve("tasks.kv");
+        Storage storage = new Storage(tempDir.resolve("tasks").toString(), new KeyValueBackend(storeFile));
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        taskList.addTask(new ToDo("read book", false));
+        taskList.addTask(new ToDo("return book", false));
+        taskList.addTask(new ToDo("wash clothes", false));
+        taskList.markTask(2);
+        taskList.deleteTask(0);
+        assertTrue(storage.close());
+
+        // Simulates a crash halfway through writing the next record
+        Files.write(storeFile, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17},
+                StandardOpenOption.APPEND);
+
+        KeyValueBackend reloaded = new KeyValueBackend(storeFile);
+        List<Task> loaded = reloaded.loadAll();
+        assertEquals(2, loaded.size());
+        assertEquals("T | 0 | return book", loaded.get(0).toFileFormat());
+        assertEquals("T | 1 | wash clothes", loaded.get(1).toFileFormat());
+        reloaded.upsert(2, new ToDo("buy pens", false));
+        assertTrue(reloaded.close().join());
+        assertEquals(3, new KeyValueBackend(storeFile).loadAll().size());
+    }
+
+    @Test
+    public void testKeyValueBackendDeletesMany() {
+        Path storeFile = tempDir.resolve("tasks.kv");
+        Storage storage = new Storage(tempDir.resolve("tasks").toString(), new KeyValueBackend(storeFile));
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        int[] indices = new int[200];
+        for (int i = 0; i < 300; i++) {
+            taskList.addTask(new ToDo("task " + i, false));
+            if (i < indices.length) {
+                indices[i] = i * 3 / 2;
+            }
+        }
+        // Enough deletions to drop the empty slots
+        taskList.deleteTasks(indices);
+        taskList.addTask(new ToDo("task 300", false));
+        taskList.deleteTask(0);
+        taskList.markTask(0);
+        assertTrue(storage.close());
+
+        List<Task> loaded = new KeyValueBackend(storeFile).loadAll();
+        assertEquals(taskList.getAllTasks().size(), loaded.size());
+        for (int i = 0; i < loaded.size(); i++) {
+            assertEquals(taskList.getTask(i).toFileFormat(), loaded.get(i).toFileFormat());
+        }
+        assertEquals("T | 1 | task 5", loaded.get(0).toFileFormat());
+    }
+
+    @Test
+    public void testKeyValueBackendLoadsLazilyAcrossRenumbering() {
+        Path storeFile = tempDir.resolve("tasks.kv");
+        Storage storage = new Storage(tempDir.resolve("tasks").toString(), new KeyValueBackend(storeFile));
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        for (int i = 0; i < 10; i++) {
+            taskList.addTask(new ToDo("task " + i, i % 3 == 0));
+        }
+        assertTrue(storage.close());
+
+        storage = new Storage(tempDir.resolve("tasks").toString(), new KeyValueBackend(storeFile));
+        LazyTaskList lazyTasks = (LazyTaskList) storage.loadSavedTasksLazily(2);
+        taskList = new TaskList(lazyTasks);
+        taskList.addListener(storage);
+        assertArrayEquals(new int[] {0, 3, 6, 9}, taskList.getDoneIndices());
+        assertEquals(0, lazyTasks.getMaterializedCount());
+
+        taskList.deleteTask(0);
+        taskList.markTask(1);
+        // Rewrites the store under new keys, which the tasks not read yet must follow
+        assertTrue(storage.saveTasks(taskList.getAllTasks()));
+        taskList.addTask(new ToDo("task 10", false));
+        assertEquals("T | 0 | task 4", taskList.getTask(3).toFileFormat());
+        assertEquals("T | 1 | task 9", taskList.getTask(8).toFileFormat());
+        List<Task> expected = new ArrayList<>(taskList.getAllTasks());
+        assertTrue(storage.close());
+
+        List<Task> loaded = new KeyValueBackend(storeFile).loadAll();
+        assertEquals(10, loaded.size());
+        for (int i = 0; i < loaded.size(); i++) {
+            assertEquals(expected.get(i).toFileFormat(), loaded.get(i).toFileFormat());
+        }
+    }
+
+    @Test
+    public void testUndoJournalsEachTaskPutBack() throws IOException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+        taskList.enableHistory();
+        taskList.addTask(new ToDo("read book", false));
+        taskList.addTask(new ToDo("return book", false));
+        taskList.addTask(new ToDo("wash clothes", false));
+        taskList.commitVersion();
+        taskList.deleteTask(1);
+        taskList.commitVersion();
+        assertTrue(taskList.undo());
+        assertTrue(storage.commit().join());
+
+        List<String> journal = Files.readAllLines(Path.of(filePath + ".journal"));
+        assertTrue(journal.contains("I 1 T | 0 | return book"));
+        assertFalse(journal.stream().anyMatch(line -> line.startsWith("X")));
+        List<Task> loaded = new Storage(filePath).loadSavedTasks();
+        assertEquals(3, loaded.size());
+        assertEquals("return book", loaded.get(1).getDescription());
+    }
+
+    @Test
+    public void testKeyValueBackendInsertsBetweenKeys() throws IOException {
+        Path storeFile = tempDir.resolve("tasks.kv");
+        KeyValueBackend backend = new KeyValueBackend(storeFile);
+        backend.loadAll();
+        for (int i = 0; i < 4; i++) {
+            backend.upsert(i, new ToDo("task " + i, false));
+        }
+        // Into the empty slot a deletion left
+        backend.delete(1);
+        backend.insert(1, new ToDo("task 1", false));
+        assertTrue(backend.close().join());
+
+        backend = new KeyValueBackend(storeFile);
+        assertEquals(4, backend.loadAll().size());
+        // Between the consecutive keys a rewrite leaves
+        backend.saveAll(List.of(new ToDo("task 0", false), new ToDo("task 2", false)));
+        backend.insert(1, new ToDo("task 1", false));
+        // Between keys with room for another
+        backend.insert(1, new ToDo("task 0.5", false));
+        backend.insert(0, new ToDo("task -1", false));
+        assertTrue(backend.close().join());
+
+        List<Task> loaded = new KeyValueBackend(storeFile).loadAll();
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : loaded) {
+            descriptions.add(task.getDescription());
+        }
+        assertEquals(List.of("task -1", "task 0", "task 0.5", "task 1", "task 2"), descriptions);
+    }
+
+    @Test
+    public void testAutosaveWaitsForMutationThreshold() {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(filePath, new AutosavePolicy(3, 60_000));
+        TaskList taskList = new TaskList(storage.loadSavedTasks());
+        taskList.addListener(storage);
+
+        taskList.addTask(new ToDo("read book", false));
+        CompletableFuture<Boolean> first = storage.commit();
+        taskList.addTask(new ToDo("wash clothes", false));
+        CompletableFuture<Boolean> second = storage.commit();
+        assertFalse(first.isDone());
+
+        taskList.addTask(new ToDo("return book", false));
+        assertTrue(storage.commit().join());
+        // Earlier commands are covered by the same write
+        assertTrue(first.join());
+        assertTrue(second.join());
+        assertEquals(3, new Storage(filePath).loadSavedTasks().size());
+    }
+
+    @Test
+    public void testTornJournalWriteNotReplayedTwice() throws IOException {
+        Path journalFile = tempDir.resolve("tasks.txt.journal");
+        Journal journal = new Journal(journalFile) {
+            @Override
+            protected FileChannel openChannel(Path path) throws IOException {
+                // Runs out of space after writing the first few bytes
+                return new FailingChannel(super.openChannel(path), 10);
+            }
+        };
+        journal.recordAdd(new ToDo("read book", false));
+        journal.recordAdd(new ToDo("return book", false));
+        journal.endGroup();
+        assertThrows(IOException.class, journal::commit);
+        journal.commit();
+        journal.close();
+
+        List<Task> tasks = new ArrayList<>();
+        new Journal(journalFile).replay(tasks);
+        assertEquals(2, tasks.size());
+        assertEquals("T | 0 | read book", tasks.get(0).toFileFormat());
+        assertEquals("T | 0 | return book", tasks.get(1).toFileFormat());
+    }
+
+    /**
+     * Represents a file channel whose next write fails once it has written a given number of bytes,
+     * as when the disk runs out of space for a moment.
+     */
+    private static class FailingChannel extends FileChannel {
+        private final FileChannel channel;
+        private long remaining;
+
+        FailingChannel(FileChannel channel, long limit) {
+            this.channel = channel;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (remaining <= 0) {
+                // Space is freed again before the next write
+                remaining = Long.MAX_VALUE;
+                throw new IOException("No space left on device");
+            }
+            ByteBuffer part = src.slice();
+            part.limit((int) Math.min(part.remaining(), remaining));
+            int written = channel.write(part);
+            src.position(src.position() + written);
+            remaining -= written;
+            return written;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            throw new IOException("No space left on device");
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            channel.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            throw new IOException("No space left on device");
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+}
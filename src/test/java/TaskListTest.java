@@ -1,10 +1,23 @@
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Test;
 
+import eunai.SortOrder;
 import eunai.TaskList;
+import eunai.task.ColumnarTaskList;
 import eunai.task.Deadline;
+import eunai.task.Event;
 import eunai.task.Task;
+import eunai.task.TaskType;
 import eunai.task.ToDo;
 
 
@@ -33,4 +46,332 @@ public class TaskListTest {
         assertEquals(1, results.getSize());
         assertEquals("return book", results.getTask(0).getDescription());
     }
+
+    @Test
+    public void testFindTaskAfterChanges() {
+        TaskList taskList = new TaskList();
+        taskList.addTask(new ToDo("Homework: maths", false));
+        taskList.addTask(new ToDo("read book", false));
+        assertEquals(1, taskList.findTask("home").getSize());
+
+        // The index built by the first search follows later changes
+        taskList.deleteTask(0);
+        taskList.addTask(new ToDo("book club homework", false));
+        assertEquals(1, taskList.findTask("home").getSize());
+        assertEquals(2, taskList.findTask("BOOK").getSize());
+        assertEquals("book club homework", taskList.findTask("k club h").getTask(0).getDescription());
+        assertEquals(0, taskList.findTask("book read").getSize());
+        assertEquals(2, taskList.findTask(" ").getSize());
+        assertEquals(2, taskList.findTask("o").getSize());
+    }
+
+    @Test
+    public void testFindTaskAfterDeletingMany() {
+        TaskList taskList = new TaskList();
+        for (int i = 0; i < 10; i++) {
+            taskList.addTask(new ToDo("chore " + i, false));
+        }
+        assertEquals(10, taskList.findTask("chore").getSize());
+        assertEquals(10, taskList.findTask("ch").getSize());
+
+        // The indexes built by the searches drop every task deleted at once
+        taskList.deleteTasks(new int[] {1, 3, 5, 7, 9});
+        assertEquals(5, taskList.findTask("chore").getSize());
+        assertEquals(5, taskList.findTask("ch").getSize());
+        assertEquals(0, taskList.findTask("chore 3").getSize());
+        assertEquals("chore 8", taskList.findTask("8").getTask(0).getDescription());
+    }
+
+    @Test
+    public void testFindTaskMatchesAnySubstring() {
+        TaskList taskList = new TaskList();
+        taskList.addTask(new ToDo("learn C++ templates", false));
+        taskList.addTask(new ToDo("plate tectonics", false));
+        taskList.addTask(new ToDo("late lunch", false));
+
+        assertEquals(1, taskList.findTask("c++").getSize());
+        assertEquals(2, taskList.findTask("plate").getSize());
+        assertEquals(3, taskList.findTask("ate").getSize());
+        assertEquals(1, taskList.findTask("n c++ t").getSize());
+        taskList.deleteTask(1);
+        assertEquals(1, taskList.findTask("plate").getSize());
+        assertEquals(0, taskList.findTask("xyz").getSize());
+        // Keywords too short for the trigram index still match inside words
+        assertEquals(2, taskList.findTask("at").getSize());
+        assertEquals(1, taskList.findTask("H").getSize());
+        // The postings built by those searches follow later changes
+        taskList.addTask(new ToDo("batch", false));
+        assertEquals(3, taskList.findTask("at").getSize());
+        taskList.deleteTask(0);
+        assertEquals(2, taskList.findTask("at").getSize());
+        assertEquals(2, taskList.findTask("h").getSize());
+    }
+
+    @Test
+    public void testFilterByType() {
+        TaskList taskList = new TaskList();
+        taskList.addTask(new ToDo("read book", false));
+        taskList.addTask(new Deadline("return book", false, "2024-06-01"));
+        taskList.addTask(new ToDo("wash clothes", false));
+        assertEquals(2, taskList.filterByType(TaskType.TODO).getSize());
+
+        taskList.deleteTask(0);
+        taskList.addTask(new Deadline("essay", false, "2024-06-02"));
+        assertEquals(1, taskList.filterByType(TaskType.TODO).getSize());
+        TaskList deadlines = taskList.filterByType(TaskType.DEADLINE);
+        assertEquals("return book", deadlines.getTask(0).getDescription());
+        assertEquals("essay", deadlines.getTask(1).getDescription());
+        assertEquals(0, taskList.filterByType(TaskType.EVENT).getSize());
+    }
+
+    @Test
+    public void testDateQueries() {
+        TaskList taskList = new TaskList();
+        taskList.addTask(new Deadline("essay", false, "2024-06-03"));
+        taskList.addTask(new ToDo("read book", false));
+        taskList.addTask(new Deadline("return book", false, "2024-06-01 18:00"));
+        taskList.addTask(new Event("camp", false, "2024-05-30", "2024-06-01"));
+
+        TaskList due = taskList.findDueBefore(LocalDateTime.of(2024, 6, 2, 0, 0));
+        assertEquals(2, due.getSize());
+        assertEquals("camp", due.getTask(0).getDescription());
+        assertEquals("return book", due.getTask(1).getDescription());
+        assertEquals(2, taskList.findDueOn(LocalDate.of(2024, 6, 1)).getSize());
+
+        assertEquals(2, taskList.deleteDueBefore(LocalDateTime.of(2024, 6, 2, 0, 0)).size());
+        assertEquals(2, taskList.getSize());
+        assertEquals("essay", taskList.getTask(0).getDescription());
+        assertEquals(0, taskList.findDueOn(LocalDate.of(2024, 6, 1)).getSize());
+        taskList.addTask(new Deadline("quiz", false, "2024-06-03 09:00"));
+        assertEquals(2, taskList.findDueOn(LocalDate.of(2024, 6, 3)).getSize());
+    }
+
+    @Test
+    public void testEventConflicts() {
+        TaskList taskList = new TaskList();
+        taskList.addTask(new Event("lecture", false, "2024-06-03 10:00", "2024-06-03 12:00"));
+        taskList.addTask(new Event("lunch", false, "2024-06-03 12:00", "2024-06-03 13:00"));
+        taskList.addTask(new ToDo("read book", false));
+        assertEquals(0, taskList.findConflicts().size());
+
+        taskList.addTask(new Event("meeting", false, "2024-06-03 11:30", "2024-06-03 12:30"));
+        List<Task[]> conflicts = taskList.findConflicts();
+        assertEquals(2, conflicts.size());
+        assertEquals("lecture", conflicts.get(0)[0].getDescription());
+        assertEquals("meeting", conflicts.get(0)[1].getDescription());
+        assertEquals("meeting", conflicts.get(1)[0].getDescription());
+        assertEquals("lunch", conflicts.get(1)[1].getDescription());
+
+        taskList.deleteTask(0);
+        assertEquals(1, taskList.findConflicts().size());
+        TaskList overlapping = taskList.findOverlappingEvents(LocalDateTime.of(2024, 6, 3, 12, 45),
+                LocalDateTime.of(2024, 6, 3, 14, 0));
+        assertEquals(1, overlapping.getSize());
+        assertEquals("lunch", overlapping.getTask(0).getDescription());
+    }
+
+    @Test
+    public void testFindFuzzy() {
+        TaskList taskList = new TaskList();
+        taskList.addTask(new ToDo("Submit homework", false));
+        taskList.addTask(new ToDo("buy groceries", false));
+        taskList.addTask(new ToDo("homework review", false));
+        taskList.deleteTask(2);
+
+        TaskList found = taskList.findFuzzy("homwork", 1);
+        assertEquals(1, found.getSize());
+        assertEquals("Submit homework", found.getTask(0).getDescription());
+        assertEquals("buy groceries", taskList.findFuzzy("BY grocries", 1).getTask(0).getDescription());
+        // Every word must be matched, and the deleted task is not found
+        assertEquals(0, taskList.findFuzzy("groceries submit", 1).getSize());
+        assertEquals(0, taskList.findFuzzy("reveiw", 2).getSize());
+    }
+
+    @Test
+    public void testFindMatchingLargeList() {
+        // Large enough to be split across threads on a multi-core machine
+        TaskList taskList = new TaskList();
+        for (int i = 0; i < 60_000; i++) {
+            taskList.addTask(new ToDo("task " + i, i % 1000 == 0));
+        }
+        taskList.deleteTask(0);
+
+        TaskList found = taskList.findMatching(Pattern.compile("TASK \\d+000$", Pattern.CASE_INSENSITIVE));
+        assertEquals(59, found.getSize());
+        assertEquals("task 1000", found.getTask(0).getDescription());
+        assertEquals("task 59000", found.getLastTask().getDescription());
+        assertEquals(59, taskList.filter(Task::taskStatus).getSize());
+    }
+
+    @Test
+    public void testSortedList() {
+        TaskList taskList = new TaskList();
+        taskList.addTask(new ToDo("read book", false));
+        taskList.addTask(new Deadline("essay", false, "2024-06-05"));
+        taskList.addTask(new Event("fair", false, "2024-06-01 10:00", "2024-06-02 10:00"));
+        taskList.addTask(new ToDo("return book", false));
+        assertEquals("3. " + taskList.getTask(2).getTaskString() + "\n2. " + taskList.getTask(1).getTaskString(),
+                taskList.getSortedListString(SortOrder.DATE, 2));
+        assertTrue(taskList.getSortedListString(SortOrder.DATE, 10)
+                .endsWith("1. [T][ ] read book\n4. [T][ ] return book"));
+
+        // The sorted views follow later changes
+        taskList.markTask(0);
+        taskList.deleteTask(1);
+        taskList.addTask(new Deadline("report", false, "2024-05-01"));
+        assertTrue(taskList.getSortedListString(SortOrder.DATE, 1).startsWith("4. [D][ ] report"));
+        String byStatus = taskList.getSortedListString(SortOrder.STATUS, 4);
+        assertTrue(byStatus.startsWith("2. [E][ ] fair"));
+        assertTrue(byStatus.endsWith("3. [T][ ] return book\n4. " + taskList.getTask(3).getTaskString()
+                + "\n1. [T][X] read book"));
+        assertEquals("1. [T][X] read book\n3. [T][ ] return book",
+                taskList.getSortedListString(SortOrder.TYPE, 2));
+    }
+
+    @Test
+    public void testUndoRedo() {
+        TaskList taskList = new TaskList();
+        taskList.addTask(new ToDo("read book", false));
+        taskList.enableHistory();
+        List<Task> before = taskList.snapshot();
+
+        taskList.addTask(new ToDo("return book", false));
+        taskList.markTask(0);
+        taskList.commitVersion();
+        taskList.deleteTask(1);
+        taskList.commitVersion();
+        // Earlier versions are not changed by later commands
+        assertEquals(1, before.size());
+        assertFalse(before.get(0).taskStatus());
+
+        assertTrue(taskList.undo());
+        assertEquals(2, taskList.getSize());
+        assertEquals("return book", taskList.findTask("return").getTask(0).getDescription());
+        assertTrue(taskList.undo());
+        assertEquals(1, taskList.getSize());
+        assertFalse(taskList.getTask(0).taskStatus());
+        assertFalse(taskList.undo());
+
+        assertTrue(taskList.redo());
+        assertTrue(taskList.getTask(0).taskStatus());
+        taskList.addTask(new ToDo("write essay", false));
+        taskList.commitVersion();
+        // A new command drops the versions that could have been redone
+        assertFalse(taskList.redo());
+        assertEquals(3, taskList.getSize());
+    }
+
+    @Test
+    public void testUndoPutsDeletedTasksBack() {
+        TaskList taskList = new TaskList();
+        for (int i = 0; i < 10; i++) {
+            taskList.addTask(new Deadline("task " + i, false, "2024-06-0" + (i % 9 + 1)));
+        }
+        taskList.enableHistory();
+        taskList.deleteTasks(new int[] {7, 2, 4});
+        taskList.markTask(0);
+        taskList.commitVersion();
+
+        assertTrue(taskList.undo());
+        assertEquals(10, taskList.getSize());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("task " + i, taskList.getTask(i).getDescription());
+        }
+        assertFalse(taskList.getTask(0).taskStatus());
+        // The tasks put back are found again, in order
+        assertEquals(1, taskList.findTask("task 4").getSize());
+        assertEquals("task 2", taskList.findTask("task").getTask(2).getDescription());
+        assertEquals(1, taskList.findDueOn(LocalDate.of(2024, 6, 3)).getSize());
+
+        assertTrue(taskList.redo());
+        assertEquals(7, taskList.getSize());
+        assertEquals("task 3", taskList.getTask(2).getDescription());
+        assertEquals(0, taskList.findTask("task 4").getSize());
+        assertEquals(0, taskList.findDueOn(LocalDate.of(2024, 6, 3)).getSize());
+        assertTrue(taskList.undo());
+        assertEquals("task 7", taskList.getTask(7).getDescription());
+    }
+
+    @Test
+    public void testUndoAfterSlotsMovedTogether() {
+        TaskList taskList = new TaskList();
+        for (int i = 0; i < 200; i++) {
+            taskList.addTask(new ToDo("task " + i, false));
+        }
+        taskList.enableHistory();
+        taskList.deleteTask(5);
+        taskList.commitVersion();
+        // Enough deletions to drop the empty slot the first one left
+        int[] indices = new int[150];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = 199 - i - 1;
+        }
+        taskList.deleteTasks(indices);
+        taskList.commitVersion();
+
+        assertTrue(taskList.undo());
+        assertTrue(taskList.undo());
+        assertEquals(200, taskList.getSize());
+        assertEquals("task 5", taskList.getTask(5).getDescription());
+        assertEquals(11, taskList.findTask("task 5").getSize());
+        assertEquals("task 150", taskList.findTask("task 150").getTask(0).getDescription());
+    }
+
+    @Test
+    public void testDeleteTasksAcrossCompaction() {
+        TaskList taskList = new TaskList();
+        for (int i = 0; i < 200; i++) {
+            taskList.addTask(new ToDo("task " + i, false));
+        }
+        List<Task> deleted = taskList.deleteTasks(new int[] {2, 0, 0});
+        assertEquals(2, deleted.size());
+        assertEquals("task 2", deleted.get(1).getDescription());
+        assertEquals("task 3", taskList.getTask(1).getDescription());
+
+        // Enough deletions to drop the empty slots
+        int[] evenIndices = new int[99];
+        for (int i = 0; i < evenIndices.length; i++) {
+            evenIndices[i] = i * 2;
+        }
+        taskList.deleteTasks(evenIndices);
+        assertEquals(99, taskList.getSize());
+        assertEquals("task 3", taskList.getTask(0).getDescription());
+        assertEquals("task 199", taskList.getLastTask().getDescription());
+        taskList.deleteTask(0);
+        assertEquals("task 5", taskList.getTask(0).getDescription());
+        assertEquals(1, taskList.findTask("task 199").getSize());
+        assertEquals(0, taskList.findTask("task 198").getSize());
+    }
+
+    @Test
+    public void testColumnarTaskList() {
+        TaskList taskList = new TaskList(new ColumnarTaskList());
+        taskList.addTask(new ToDo("read book", false));
+        taskList.addTask(new Deadline("return book", false, "2024-06-01 18:00"));
+        taskList.addTask(new Event("camp", false, "2024-05-30", "2024-06-01"));
+        taskList.markTask(1);
+
+        assertTrue(taskList.getTask(1).taskStatus());
+        assertEquals(LocalDateTime.of(2024, 6, 1, 18, 0), ((Deadline) taskList.getTask(1)).getByDate());
+        Event camp = (Event) taskList.getTask(2);
+        assertEquals(LocalDateTime.of(2024, 5, 30, 0, 0), camp.getStartDate());
+        assertEquals(LocalDateTime.of(2024, 6, 1, 0, 0), camp.getEndDate());
+        assertEquals(2, taskList.findTask("book").getSize());
+
+        taskList.deleteTask(0);
+        assertEquals("return book", taskList.getTask(0).getDescription());
+        assertEquals(1, taskList.filterByType(TaskType.EVENT).getSize());
+    }
+
+    @Test
+    public void testWriteListInChunks() throws IOException {
+        TaskList taskList = new TaskList();
+        for (int i = 0; i < 1000; i++) {
+            taskList.addTask(new ToDo("task " + i, false));
+        }
+        StringWriter out = new StringWriter();
+        taskList.writeList(out, 0, taskList.getSize());
+        assertEquals(taskList.getListString(), "Here are your tasks:\n" + out.toString().trim());
+        assertEquals("51. [T][ ] task 50\n52. [T][ ] task 51", taskList.getListString(50, 52));
+    }
 }